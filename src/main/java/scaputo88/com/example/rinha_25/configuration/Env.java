@@ -0,0 +1,63 @@
+package scaputo88.com.example.rinha_25.configuration;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Leitura das variáveis de ambiente de ajuste ({@code WORKERS}, {@code PP_TIMEOUT_MS}, ...), num lugar só.
+ * Ausente ou em branco vale o default; valor inválido também, com um aviso no log.
+ * <p>
+ * As classes que leem daqui são montadas também sem Spring (harness e benchmarks em {@code bench}), por
+ * isso não usam {@code @Value}.
+ */
+public final class Env {
+
+    private static final Logger log = LoggerFactory.getLogger(Env.class);
+
+    private Env() {
+    }
+
+    public static String string(String key, String def) {
+        String v = System.getenv(key);
+        return (v == null || v.isBlank()) ? def : v.trim();
+    }
+
+    public static int integer(String key, int def) {
+        String v = System.getenv(key);
+        if (v == null || v.isBlank()) {
+            return def;
+        }
+        try {
+            return Integer.parseInt(v.trim());
+        } catch (NumberFormatException e) {
+            log.warn("Valor inválido para {}: {}. Usando valor padrão: {}", key, v, def);
+            return def;
+        }
+    }
+
+    /** Como {@link #integer}, mas zero ou negativo também cai no default. */
+    public static int positive(String key, int def) {
+        int value = integer(key, def);
+        if (value <= 0) {
+            log.warn("Valor inválido para {}: {}. Usando valor padrão: {}", key, value, def);
+            return def;
+        }
+        return value;
+    }
+
+    /** {@code true}/{@code false} sem diferenciar maiúsculas. */
+    public static boolean flag(String key, boolean def) {
+        String v = string(key, null);
+        if (v == null) {
+            return def;
+        }
+        if (v.equalsIgnoreCase("true")) {
+            return true;
+        }
+        if (v.equalsIgnoreCase("false")) {
+            return false;
+        }
+        log.warn("Valor inválido para {}: {}. Usando valor padrão: {}", key, v, def);
+        return def;
+    }
+}
@@ -1,37 +1,154 @@
 package scaputo88.com.example.rinha_25.configuration;
 
+import io.lettuce.core.resource.ClientResources;
+import io.lettuce.core.resource.DefaultClientResources;
+import io.lettuce.core.resource.EpollProvider;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
+import org.springframework.data.redis.connection.RedisConfiguration;
+import org.springframework.data.redis.connection.RedisSocketConfiguration;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisClientConfiguration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnection;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettucePoolingClientConfiguration;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 
+
+/**
+ * Uma única camada de acesso ao Redis, escolhida por {@code redis.client}:
+ * <ul>
+ *   <li>{@code lettuce} (padrão): uma conexão multiplexada compartilhada por todas as threads
+ *   (os comandos concorrentes já saem em pipeline nela); só os pipelines explícitos
+ *   ({@code executePipelined}) pegam uma conexão dedicada, vinda de um pool pequeno.</li>
+ *   <li>{@code jedis}: pool de conexões bloqueantes, uma por comando em voo. Só TCP.</li>
+ * </ul>
+ * Os pools registram MBeans do commons-pool2 com prefixo {@code redis-}, lidos em
+ * {@code /internal/redis-status}.
+ */
 @Configuration
 public class RedisConfig {
 
-    @Value("${redis.host:redis}")
-    private String redisHost;
+    private static final Logger log = LoggerFactory.getLogger(RedisConfig.class);
 
-    @Value("${redis.port:6379}")
-    private int redisPort;
+    public static final String POOL_JMX_PREFIX = "redis-";
 
     @Value("${redis.timeout.millis:1000}")
     private int timeoutMillis;
 
-    @Bean(destroyMethod = "close")
-    public JedisPool jedisPool() {
-        JedisPoolConfig pool = new JedisPoolConfig();
-        pool.setMaxTotal(64);
-        pool.setMaxIdle(16);
-        pool.setMinIdle(2);
-        pool.setTestOnBorrow(true);
-        pool.setTestWhileIdle(true);
-
-        // Conexão TCP
-        return new JedisPool(pool, redisHost, redisPort, timeoutMillis);
+    @Value("${spring.data.redis.host:localhost}")
+    private String dataHost;
+
+    @Value("${spring.data.redis.port:6379}")
+    private int dataPort;
+
+    @Value("${redis.socket.path:}")
+    private String socketPath;
+
+    // O socket é criado pelo container do Redis; espera um pouco por ele antes de cair para TCP
+    @Value("${redis.socket.wait-ms:3000}")
+    private long socketWaitMs;
+
+    @Value("${redis.pool.max-total:8}")
+    private int poolMaxTotal;
+
+    @Value("${redis.pool.min-idle:0}")
+    private int poolMinIdle;
+
+    @Value("${redis.lettuce.io-threads:2}")
+    private int lettuceIoThreads;
+
+    @Bean(destroyMethod = "shutdown")
+    @ConditionalOnProperty(name = "redis.client", havingValue = "lettuce", matchIfMissing = true)
+    public ClientResources lettuceClientResources() {
+        // O padrão do Lettuce é uma thread de I/O e uma de computação por core
+        return DefaultClientResources.builder()
+                .ioThreadPoolSize(lettuceIoThreads)
+                .computationThreadPoolSize(lettuceIoThreads)
+                .build();
     }
-}
 
+    /**
+     * Conexão do Lettuce usada pelo {@code RedisTemplate}: Unix domain socket em
+     * {@code redis.socket.path} quando o arquivo existe e o transporte epoll do Netty está
+     * disponível (Linux/glibc); caso contrário, TCP em {@code spring.data.redis.host:port}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "redis.client", havingValue = "lettuce", matchIfMissing = true)
+    public LettuceConnectionFactory redisConnectionFactory(ClientResources lettuceClientResources) {
+        // Sem pool, cada executePipelined abriria (e fecharia) uma conexão dedicada nova
+        LettucePoolingClientConfiguration clientConfig = LettucePoolingClientConfiguration.builder()
+                .clientResources(lettuceClientResources)
+                .commandTimeout(Duration.ofMillis(timeoutMillis))
+                .poolConfig(poolConfig("lettuce"))
+                .build();
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(redisConfiguration(), clientConfig);
+        // O lote inteiro vai numa única escrita no socket, ao fechar o pipeline
+        factory.setPipeliningFlushPolicy(LettuceConnection.PipeliningFlushPolicy.flushOnClose());
+        log.info("Redis via Lettuce: conexão compartilhada, pool de pipelines maxTotal={}, ioThreads={}",
+                poolMaxTotal, lettuceIoThreads);
+        return factory;
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "redis.client", havingValue = "jedis")
+    public JedisConnectionFactory jedisConnectionFactory() {
+        JedisClientConfiguration clientConfig = JedisClientConfiguration.builder()
+                .connectTimeout(Duration.ofMillis(timeoutMillis))
+                .readTimeout(Duration.ofMillis(timeoutMillis))
+                .usePooling()
+                .poolConfig(poolConfig("jedis"))
+                .build();
+        log.info("Redis via Jedis: TCP em {}:{}, pool maxTotal={}", dataHost, dataPort, poolMaxTotal);
+        return new JedisConnectionFactory(new RedisStandaloneConfiguration(dataHost, dataPort), clientConfig);
+    }
+
+    private <T> GenericObjectPoolConfig<T> poolConfig(String client) {
+        GenericObjectPoolConfig<T> pool = new GenericObjectPoolConfig<>();
+        pool.setMaxTotal(poolMaxTotal);
+        pool.setMaxIdle(poolMaxTotal);
+        pool.setMinIdle(poolMinIdle);
+        pool.setMaxWait(Duration.ofMillis(timeoutMillis));
+        pool.setJmxNamePrefix(POOL_JMX_PREFIX + client);
+        return pool;
+    }
 
+    private RedisConfiguration redisConfiguration() {
+        if (socketPath != null && !socketPath.isBlank()) {
+            if (!EpollProvider.isAvailable()) {
+                log.warn("Transporte epoll indisponível; Redis via TCP em {}:{}", dataHost, dataPort);
+            } else if (waitForSocket(Path.of(socketPath))) {
+                log.info("Redis via Unix domain socket {}", socketPath);
+                return new RedisSocketConfiguration(socketPath);
+            } else {
+                log.warn("Socket {} não encontrado; Redis via TCP em {}:{}", socketPath, dataHost, dataPort);
+            }
+        }
+        return new RedisStandaloneConfiguration(dataHost, dataPort);
+    }
 
+    private boolean waitForSocket(Path path) {
+        long deadline = System.currentTimeMillis() + socketWaitMs;
+        while (!Files.exists(path)) {
+            if (System.currentTimeMillis() >= deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+}
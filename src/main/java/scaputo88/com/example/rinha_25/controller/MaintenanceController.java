@@ -1,10 +1,13 @@
 package scaputo88.com.example.rinha_25.controller;
 
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import scaputo88.com.example.rinha_25.service.PaymentService;
 
+import java.util.Map;
+
 @RestController
 @RequestMapping("/maintenance")
 public class MaintenanceController {
@@ -19,5 +22,10 @@ public class MaintenanceController {
     public void purge() {
         paymentService.purgePayments();
     }
+
+    @PostMapping("/migrate-members")
+    public Map<String, Integer> migrateMembers() {
+        return Map.of("migrated", paymentService.migrateLegacyMembers());
+    }
 }
 
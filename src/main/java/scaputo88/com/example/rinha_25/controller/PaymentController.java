@@ -1,43 +1,51 @@
 package scaputo88.com.example.rinha_25.controller;
 
-import jakarta.validation.Valid;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
-import scaputo88.com.example.rinha_25.model.PaymentRequest;
-import scaputo88.com.example.rinha_25.model.PaymentSummary;
+import scaputo88.com.example.rinha_25.model.PaymentRequestParser;
 import scaputo88.com.example.rinha_25.service.PaymentService;
 
 import java.time.Instant;
 import java.time.format.DateTimeParseException;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class PaymentController {
 
     private final PaymentService paymentService;
+    private final String retryAfterSeconds;
 
-    public PaymentController(PaymentService paymentService) {
+    public PaymentController(PaymentService paymentService,
+                             @Value("${payments.queue.retry-after-seconds:1}") int retryAfterSeconds) {
         this.paymentService = paymentService;
+        this.retryAfterSeconds = Integer.toString(retryAfterSeconds);
     }
 
     @PostMapping(path = "/payments", consumes = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Void> createPayment(@Valid @RequestBody PaymentRequest request) {
-        paymentService.processAsync(request);
+    public ResponseEntity<?> createPayment(@RequestBody byte[] body) {
+        if (!paymentService.processAsync(PaymentRequestParser.parse(body))) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("error", "Duplicate correlationId"));
+        }
         return ResponseEntity.accepted().build();
     }
     @GetMapping(path = "/payments-summary")
-    public ResponseEntity<PaymentSummary> getSummary(
+    public ResponseEntity<byte[]> getSummary(
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
             @RequestParam(required = false)
             @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to
     ) {
-        PaymentSummary summary = paymentService.getSummary(from, to);
-        return ResponseEntity.ok(summary);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(paymentService.getSummaryJson(from, to));
     }
 
     @PostMapping(path = "/purge-payments")
@@ -51,6 +59,14 @@ public class PaymentController {
         return ResponseEntity.badRequest().body(Map.of("error", ex.getMessage() != null ? ex.getMessage() : "Invalid request"));
     }
 
+    // Fila saturada: 503 + Retry-After para o nginx repassar a requisição ao outro backend
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleSaturated(RejectedExecutionException ex) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, retryAfterSeconds)
+                .body(Map.of("error", "Payment queue saturated"));
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, String>> handleServerError(Exception ex) {
         return ResponseEntity.status(500).body(Map.of("error", "Internal server error"));
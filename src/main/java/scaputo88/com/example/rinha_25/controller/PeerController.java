@@ -0,0 +1,38 @@
+package scaputo88.com.example.rinha_25.controller;
+
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import scaputo88.com.example.rinha_25.service.PaymentService;
+import scaputo88.com.example.rinha_25.service.PeerSummaryClient;
+
+import java.time.Instant;
+
+/** Lado servidor do {@link PeerSummaryClient}: só os dados desta instância, sem consultar a outra. */
+@RestController
+public class PeerController {
+
+    private final PaymentService paymentService;
+
+    public PeerController(PaymentService paymentService) {
+        this.paymentService = paymentService;
+    }
+
+    @GetMapping(path = "/internal/peer/summary", produces = MediaType.TEXT_PLAIN_VALUE)
+    public String summary(
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+            @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to
+    ) {
+        return PeerSummaryClient.encode(paymentService.getLocalSummary(from, to));
+    }
+
+    @PostMapping("/internal/peer/purge")
+    public void purge() {
+        paymentService.purgeLocalPayments();
+    }
+}
@@ -0,0 +1,20 @@
+package scaputo88.com.example.rinha_25.controller;
+
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+import scaputo88.com.example.rinha_25.service.RedisStatusService;
+
+@RestController
+public class RedisStatusController {
+
+    private final RedisStatusService service;
+
+    public RedisStatusController(RedisStatusService service) {
+        this.service = service;
+    }
+
+    @GetMapping("/internal/redis-status")
+    public RedisStatusService.RedisStatus status() {
+        return service.snapshot();
+    }
+}
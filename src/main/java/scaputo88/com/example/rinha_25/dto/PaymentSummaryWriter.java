@@ -0,0 +1,82 @@
+package scaputo88.com.example.rinha_25.dto;
+
+import scaputo88.com.example.rinha_25.model.PaymentSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Serializa o resumo no formato de {@link PaymentSummaryResponse}
+ * ({@code {"default":{"totalRequests":N,"totalAmount":X.YY},"fallback":{...}}}) direto dos totais
+ * em centavos, sem Jackson nem {@code BigDecimal}. Os trechos fixos do JSON ficam pré-codificados.
+ */
+public final class PaymentSummaryWriter {
+
+    private static final byte[] DEFAULT_REQUESTS = ascii("{\"default\":{\"totalRequests\":");
+    private static final byte[] FALLBACK_REQUESTS = ascii("},\"fallback\":{\"totalRequests\":");
+    private static final byte[] TOTAL_AMOUNT = ascii(",\"totalAmount\":");
+    private static final byte[] END = ascii("}}");
+
+    // Trechos fixos + 4 números de até 20 dígitos com sinal e ponto
+    private static final int MAX_LENGTH = DEFAULT_REQUESTS.length + FALLBACK_REQUESTS.length
+            + 2 * TOTAL_AMOUNT.length + END.length + 4 * 22;
+
+    private PaymentSummaryWriter() {
+    }
+
+    public static byte[] write(PaymentSummary summary) {
+        byte[] buf = new byte[MAX_LENGTH];
+        int pos = put(buf, 0, DEFAULT_REQUESTS);
+        pos = putLong(buf, pos, summary.default_total_requests());
+        pos = put(buf, pos, TOTAL_AMOUNT);
+        pos = putCents(buf, pos, summary.default_total_amount());
+        pos = put(buf, pos, FALLBACK_REQUESTS);
+        pos = putLong(buf, pos, summary.fallback_total_requests());
+        pos = put(buf, pos, TOTAL_AMOUNT);
+        pos = putCents(buf, pos, summary.fallback_total_amount());
+        pos = put(buf, pos, END);
+        return Arrays.copyOf(buf, pos);
+    }
+
+    private static int put(byte[] buf, int pos, byte[] fragment) {
+        System.arraycopy(fragment, 0, buf, pos, fragment.length);
+        return pos + fragment.length;
+    }
+
+    /** Centavos como decimal com duas casas, igual a {@code BigDecimal.valueOf(cents, 2)} no Jackson. */
+    private static int putCents(byte[] buf, int pos, long cents) {
+        if (cents < 0) {
+            buf[pos++] = '-';
+        }
+        long abs = Math.abs(cents);
+        pos = putLong(buf, pos, abs / 100);
+        int fraction = (int) (abs % 100);
+        buf[pos++] = '.';
+        buf[pos++] = (byte) ('0' + fraction / 10);
+        buf[pos++] = (byte) ('0' + fraction % 10);
+        return pos;
+    }
+
+    private static int putLong(byte[] buf, int pos, long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                return put(buf, pos, ascii(Long.toString(value)));
+            }
+            buf[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,99 @@
+package scaputo88.com.example.rinha_25.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Valores monetários em ponto fixo: {@code long} de centavos. {@link BigDecimal} só aparece
+ * na entrada (request) e na serialização JSON.
+ */
+public final class Money {
+
+    private Money() {
+    }
+
+    public static long toCents(BigDecimal amount) {
+        return amount != null ? amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue() : 0L;
+    }
+
+    public static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    /** Taxa percentual truncada no centavo (equivale a {@code setScale(2, RoundingMode.DOWN)}). */
+    public static long feeCents(long amountCents, int percent) {
+        return amountCents * percent / 100;
+    }
+
+    /** Formata centavos como decimal com duas casas, ex.: {@code 1990 -> "19.90"}. */
+    public static String format(long cents) {
+        long abs = Math.abs(cents);
+        long fraction = abs % 100;
+        StringBuilder sb = new StringBuilder(24);
+        if (cents < 0) sb.append('-');
+        sb.append(abs / 100).append('.');
+        if (fraction < 10) sb.append('0');
+        return sb.append(fraction).toString();
+    }
+
+    /**
+     * Converte um decimal textual ({@code "19.9"}, {@code "19.90"}, {@code "20"}) em centavos,
+     * arredondando a terceira casa (HALF_UP). Retorna 0 para texto inválido.
+     */
+    public static long parseCents(CharSequence s) {
+        int len = s.length();
+        int i = 0;
+        boolean negative = false;
+        if (len > 0 && (s.charAt(0) == '-' || s.charAt(0) == '+')) {
+            negative = s.charAt(0) == '-';
+            i++;
+        }
+        long units = 0;
+        boolean digits = false;
+        for (; i < len && s.charAt(i) != '.'; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return 0L;
+            units = units * 10 + (c - '0');
+            digits = true;
+        }
+        long fraction = 0;
+        int scale = 0;
+        boolean roundUp = false;
+        if (i < len) {
+            for (i++; i < len; i++) {
+                char c = s.charAt(i);
+                if (c < '0' || c > '9') return 0L;
+                if (scale < 2) {
+                    fraction = fraction * 10 + (c - '0');
+                    scale++;
+                } else if (scale == 2) {
+                    roundUp = c >= '5';
+                    scale++;
+                }
+                digits = true;
+            }
+        }
+        if (!digits) return 0L;
+        if (scale == 1) fraction *= 10;
+        long cents = units * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    /** Serializa um {@code long} de centavos como número decimal no JSON. */
+    public static final class CentsSerializer extends StdSerializer<Long> {
+
+        public CentsSerializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public void serialize(Long cents, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeNumber(toBigDecimal(cents));
+        }
+    }
+}
@@ -1,27 +1,26 @@
 package scaputo88.com.example.rinha_25.model;
 
-import java.math.BigDecimal;
 import java.time.Instant;
 import java.util.UUID;
 
 public class Payment {
     private final UUID correlationId;
     private final String processorUsed;
-    private final BigDecimal amount;
-    private final BigDecimal fee;
+    private final long amountCents;
+    private final long feeCents;
     private final Instant timestamp;
     private final boolean usedFallback;
 
     public Payment(UUID correlationId,
                    String processorUsed,
-                   BigDecimal amount,
-                   BigDecimal fee,
+                   long amountCents,
+                   long feeCents,
                    Instant timestamp,
                    boolean usedFallback) {
         this.correlationId = correlationId;
         this.processorUsed = processorUsed;
-        this.amount = amount;
-        this.fee = fee;
+        this.amountCents = amountCents;
+        this.feeCents = feeCents;
         this.timestamp = timestamp;
         this.usedFallback = usedFallback;
     }
@@ -34,12 +33,12 @@ public class Payment {
         return processorUsed;
     }
 
-    public BigDecimal amount() {
-        return amount;
+    public long amountCents() {
+        return amountCents;
     }
 
-    public BigDecimal fee() {
-        return fee;
+    public long feeCents() {
+        return feeCents;
     }
 
     public Instant timestamp() {
@@ -0,0 +1,14 @@
+package scaputo88.com.example.rinha_25.model;
+
+import java.util.UUID;
+
+/**
+ * Corpo do {@code POST /payments} já convertido: UUID como dois longs e valor em centavos.
+ * {@code hasAmount} é false quando {@code amount} veio ausente ou {@code null}.
+ */
+public record PaymentCommand(long correlationMsb, long correlationLsb, long amountCents, boolean hasAmount) {
+
+    public UUID correlationId() {
+        return new UUID(correlationMsb, correlationLsb);
+    }
+}
@@ -0,0 +1,347 @@
+package scaputo88.com.example.rinha_25.model;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Parser do corpo {@code {"correlationId": "...", "amount": 19.90}} direto dos bytes, sem Jackson,
+ * {@link BigDecimal} nem {@code String} no caminho comum. Segue o binding anterior via
+ * {@link PaymentRequest}: campos desconhecidos são ignorados, o último valor de uma chave repetida
+ * vale, {@code amount} aceita número ou string numérica e arredonda HALF_UP no centavo
+ * ({@link Money#toCents}).
+ * <p>
+ * Formas fora do caminho comum (escapes, expoente, UUID não canônico, mais de 16 dígitos) caem
+ * em {@link UUID#fromString} / {@link BigDecimal}, com o mesmo resultado de antes.
+ */
+public final class PaymentRequestParser {
+
+    private static final byte[] CORRELATION_ID = "correlationId".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] AMOUNT = "amount".getBytes(StandardCharsets.US_ASCII);
+
+    // Posições dos 32 dígitos em "xxxxxxxx-xxxx-xxxx-xxxx-xxxxxxxxxxxx"
+    private static final int[] UUID_DIGITS = {
+            0, 1, 2, 3, 4, 5, 6, 7, 9, 10, 11, 12, 14, 15, 16, 17,
+            19, 20, 21, 22, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34, 35};
+
+    // Tabela em vez de comparações: com UUID aleatório, desvio por faixa de caractere erra muito
+    private static final byte[] HEX = new byte[256];
+
+    static {
+        Arrays.fill(HEX, (byte) -1);
+        for (int c = '0'; c <= '9'; c++) HEX[c] = (byte) (c - '0');
+        for (int c = 'a'; c <= 'f'; c++) HEX[c] = (byte) (c - 'a' + 10);
+        for (int c = 'A'; c <= 'F'; c++) HEX[c] = (byte) (c - 'A' + 10);
+    }
+
+    private PaymentRequestParser() {
+    }
+
+    public static PaymentCommand parse(byte[] body) {
+        return parse(body, 0, body.length);
+    }
+
+    /**
+     * @throws IllegalArgumentException para JSON malformado, {@code correlationId} ausente ou inválido,
+     *                                  ou {@code amount} não numérico ou menor que um centavo depois do arredondamento
+     */
+    public static PaymentCommand parse(byte[] buf, int offset, int length) {
+        int end = offset + length;
+        int i = skipWhitespace(buf, offset, end);
+        if (i >= end || buf[i] != '{') {
+            throw invalid("objeto JSON esperado");
+        }
+        i = skipWhitespace(buf, i + 1, end);
+
+        boolean hasId = false;
+        long msb = 0, lsb = 0;
+        boolean hasAmount = false;
+        long cents = 0;
+
+        if (i < end && buf[i] == '}') {
+            throw invalid("correlationId é obrigatório");
+        }
+        while (true) {
+            if (i >= end || buf[i] != '"') {
+                throw invalid("nome de campo esperado");
+            }
+            int keyStart = i + 1;
+            int keyEnd = stringEnd(buf, keyStart, end);
+            int field = field(buf, keyStart, keyEnd);
+            i = skipWhitespace(buf, keyEnd + 1, end);
+            if (i >= end || buf[i] != ':') {
+                throw invalid("':' esperado");
+            }
+            i = skipWhitespace(buf, i + 1, end);
+            if (i >= end) {
+                throw invalid("valor esperado");
+            }
+
+            int valueEnd = valueEnd(buf, i, end);
+            if (field == 1) {
+                if (isNull(buf, i, valueEnd)) {
+                    hasId = false;
+                } else {
+                    UUID id = parseUuid(buf, i, valueEnd);
+                    msb = id.getMostSignificantBits();
+                    lsb = id.getLeastSignificantBits();
+                    hasId = true;
+                }
+            } else if (field == 2) {
+                if (isNull(buf, i, valueEnd)) {
+                    hasAmount = false;
+                } else if (buf[i] == '"') {
+                    String text = decodeString(buf, i + 1, valueEnd - 1);
+                    hasAmount = !text.isEmpty();
+                    cents = hasAmount ? parseAmount(text) : 0;
+                } else if (isJsonNumber(buf, i, valueEnd)) {
+                    cents = parseAmount(buf, i, valueEnd);
+                    hasAmount = true;
+                } else {
+                    throw invalid("amount deve ser numérico");
+                }
+            }
+
+            i = skipWhitespace(buf, valueEnd, end);
+            if (i < end && buf[i] == ',') {
+                i = skipWhitespace(buf, i + 1, end);
+            } else if (i < end && buf[i] == '}') {
+                break;
+            } else {
+                throw invalid("',' ou '}' esperado");
+            }
+        }
+
+        if (!hasId) {
+            throw invalid("correlationId é obrigatório");
+        }
+        // O member do ZSET guarda o valor sem sinal (PaymentMemberCodec)
+        if (hasAmount && cents <= 0) {
+            throw invalid("amount deve ser positivo");
+        }
+        return new PaymentCommand(msb, lsb, cents, hasAmount);
+    }
+
+    // 1 = correlationId, 2 = amount, 0 = outro campo
+    private static int field(byte[] buf, int start, int end) {
+        if (regionEquals(buf, start, end, CORRELATION_ID)) return 1;
+        if (regionEquals(buf, start, end, AMOUNT)) return 2;
+        for (int i = start; i < end; i++) {
+            if (buf[i] == '\\') {
+                String key = decodeString(buf, start, end);
+                return "correlationId".equals(key) ? 1 : "amount".equals(key) ? 2 : 0;
+            }
+        }
+        return 0;
+    }
+
+    private static UUID parseUuid(byte[] buf, int start, int end) {
+        if (buf[start] == '"') {
+            int from = start + 1, to = end - 1;
+            if (to - from == 36) {
+                UUID id = parseCanonicalUuid(buf, from);
+                if (id != null) return id;
+            }
+            return UUID.fromString(decodeString(buf, from, to));
+        }
+        if (buf[start] == '{' || buf[start] == '[') {
+            throw invalid("correlationId deve ser string");
+        }
+        // Números e booleanos viravam String no binding antigo; UUID.fromString rejeita do mesmo jeito
+        return UUID.fromString(new String(buf, start, end - start, StandardCharsets.US_ASCII));
+    }
+
+    private static UUID parseCanonicalUuid(byte[] buf, int p) {
+        if (buf[p + 8] != '-' || buf[p + 13] != '-' || buf[p + 18] != '-' || buf[p + 23] != '-') {
+            return null;
+        }
+        long msb = 0, lsb = 0;
+        int bad = 0;
+        for (int k = 0; k < 16; k++) {
+            int h = HEX[buf[p + UUID_DIGITS[k]] & 0xFF];
+            bad |= h;
+            msb = (msb << 4) | (h & 0xF);
+        }
+        for (int k = 16; k < 32; k++) {
+            int h = HEX[buf[p + UUID_DIGITS[k]] & 0xFF];
+            bad |= h;
+            lsb = (lsb << 4) | (h & 0xF);
+        }
+        return bad < 0 ? null : new UUID(msb, lsb);
+    }
+
+    /** Caminho rápido do {@link Money#toCents}: {@code -?\d{1,16}(\.\d+)?}. */
+    static long parseAmount(byte[] buf, int start, int end) {
+        int i = start;
+        boolean negative = buf[i] == '-';
+        if (negative) i++;
+        long units = 0;
+        int intDigits = 0;
+        while (i < end && buf[i] >= '0' && buf[i] <= '9') {
+            units = units * 10 + (buf[i++] - '0');
+            intDigits++;
+        }
+        long fraction = 0;
+        int scale = 0;
+        boolean roundUp = false;
+        boolean plain = intDigits > 0 && intDigits <= 16;
+        if (plain && i < end && buf[i] == '.') {
+            int fracDigits = 0;
+            for (i++; i < end && buf[i] >= '0' && buf[i] <= '9'; i++, fracDigits++) {
+                if (scale < 2) {
+                    fraction = fraction * 10 + (buf[i] - '0');
+                    scale++;
+                } else if (scale == 2) {
+                    roundUp = buf[i] >= '5';
+                    scale++;
+                }
+            }
+            plain = fracDigits > 0;
+        }
+        if (!plain || i != end) {
+            return parseAmount(new String(buf, start, end - start, StandardCharsets.US_ASCII));
+        }
+        if (scale == 1) fraction *= 10;
+        long cents = units * 100 + fraction + (roundUp ? 1 : 0);
+        return negative ? -cents : cents;
+    }
+
+    private static long parseAmount(String text) {
+        try {
+            return Money.toCents(new BigDecimal(text.trim()));
+        } catch (NumberFormatException e) {
+            throw invalid("amount inválido: " + text);
+        }
+    }
+
+    // Gramática de número do JSON: -?(0|[1-9]\d*)(\.\d+)?([eE][+-]?\d+)?
+    private static boolean isJsonNumber(byte[] buf, int start, int end) {
+        int i = start;
+        if (i < end && buf[i] == '-') i++;
+        if (i >= end) return false;
+        if (buf[i] == '0') {
+            i++;
+        } else if (buf[i] >= '1' && buf[i] <= '9') {
+            while (i < end && buf[i] >= '0' && buf[i] <= '9') i++;
+        } else {
+            return false;
+        }
+        if (i < end && buf[i] == '.') {
+            int digitsFrom = ++i;
+            while (i < end && buf[i] >= '0' && buf[i] <= '9') i++;
+            if (i == digitsFrom) return false;
+        }
+        if (i < end && (buf[i] == 'e' || buf[i] == 'E')) {
+            i++;
+            if (i < end && (buf[i] == '+' || buf[i] == '-')) i++;
+            int digitsFrom = i;
+            while (i < end && buf[i] >= '0' && buf[i] <= '9') i++;
+            if (i == digitsFrom) return false;
+        }
+        return i == end;
+    }
+
+    private static boolean isNull(byte[] buf, int start, int end) {
+        return end - start == 4 && buf[start] == 'n' && buf[start + 1] == 'u' && buf[start + 2] == 'l' && buf[start + 3] == 'l';
+    }
+
+    /** Fim (exclusivo) do valor que começa em {@code i}: string, objeto/array ou literal/número. */
+    private static int valueEnd(byte[] buf, int i, int end) {
+        byte c = buf[i];
+        if (c == '"') {
+            return stringEnd(buf, i + 1, end) + 1;
+        }
+        if (c == '{' || c == '[') {
+            int depth = 0;
+            for (int j = i; j < end; j++) {
+                byte b = buf[j];
+                if (b == '"') {
+                    j = stringEnd(buf, j + 1, end);
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if (b == '}' || b == ']') {
+                    if (--depth == 0) return j + 1;
+                }
+            }
+            throw invalid("objeto ou array sem fechamento");
+        }
+        int j = i;
+        while (j < end) {
+            byte b = buf[j];
+            if (b == ',' || b == '}' || b == ']' || b == ' ' || b == '\t' || b == '\n' || b == '\r') break;
+            j++;
+        }
+        if (j == i) {
+            throw invalid("valor esperado");
+        }
+        return j;
+    }
+
+    /** Posição da aspa que fecha a string cujo conteúdo começa em {@code i}. */
+    private static int stringEnd(byte[] buf, int i, int end) {
+        for (; i < end; i++) {
+            byte b = buf[i];
+            if (b == '\\') {
+                i++;
+            } else if (b == '"') {
+                return i;
+            }
+        }
+        throw invalid("string sem fechamento");
+    }
+
+    private static String decodeString(byte[] buf, int start, int end) {
+        StringBuilder sb = new StringBuilder(end - start);
+        String raw = new String(buf, start, end - start, StandardCharsets.UTF_8);
+        for (int i = 0; i < raw.length(); i++) {
+            char c = raw.charAt(i);
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (++i >= raw.length()) throw invalid("escape incompleto");
+            char e = raw.charAt(i);
+            switch (e) {
+                case '"', '\\', '/' -> sb.append(e);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> {
+                    if (i + 4 >= raw.length()) throw invalid("escape incompleto");
+                    try {
+                        sb.append((char) Integer.parseInt(raw, i + 1, i + 5, 16));
+                    } catch (NumberFormatException ex) {
+                        throw invalid("escape inválido");
+                    }
+                    i += 4;
+                }
+                default -> throw invalid("escape inválido");
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean regionEquals(byte[] buf, int start, int end, byte[] expected) {
+        if (end - start != expected.length) return false;
+        for (int k = 0; k < expected.length; k++) {
+            if (buf[start + k] != expected[k]) return false;
+        }
+        return true;
+    }
+
+    private static int skipWhitespace(byte[] buf, int i, int end) {
+        while (i < end) {
+            byte b = buf[i];
+            if (b != ' ' && b != '\t' && b != '\n' && b != '\r') break;
+            i++;
+        }
+        return i;
+    }
+
+    private static IllegalArgumentException invalid(String message) {
+        return new IllegalArgumentException("Corpo inválido: " + message);
+    }
+}
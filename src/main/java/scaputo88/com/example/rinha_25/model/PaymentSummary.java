@@ -1,14 +1,14 @@
 package scaputo88.com.example.rinha_25.model;
 
 
-import java.math.BigDecimal;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
+// Valores em centavos; convertidos para decimal apenas na serialização JSON
 public record PaymentSummary(
-        BigDecimal default_total_amount,
-        BigDecimal default_total_fee,
+        @JsonSerialize(using = Money.CentsSerializer.class) long default_total_amount,
+        @JsonSerialize(using = Money.CentsSerializer.class) long default_total_fee,
         long default_total_requests,
-        BigDecimal fallback_total_amount,
-        BigDecimal fallback_total_fee,
+        @JsonSerialize(using = Money.CentsSerializer.class) long fallback_total_amount,
+        @JsonSerialize(using = Money.CentsSerializer.class) long fallback_total_fee,
         long fallback_total_requests
 ) {}
-
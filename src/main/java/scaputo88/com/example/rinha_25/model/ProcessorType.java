@@ -2,17 +2,33 @@ package scaputo88.com.example.rinha_25.model;
 
 
 public enum ProcessorType {
-    DEFAULT("default"),
-    FALLBACK("fallback");
+    DEFAULT("default", 5),
+    FALLBACK("fallback", 15);
 
     public final String value;
+    public final int feePercent;
 
-    ProcessorType(String value) {
+    ProcessorType(String value, int feePercent) {
         this.value = value;
+        this.feePercent = feePercent;
     }
 
     public String getValue() {
         return value;
     }
 
+    public int getFeePercent() {
+        return feePercent;
+    }
+
+    /** @throws IllegalArgumentException se {@code value} não for {@code default} nem {@code fallback} */
+    public static ProcessorType fromValue(String value) {
+        for (ProcessorType type : values()) {
+            if (type.value.equals(value)) {
+                return type;
+            }
+        }
+        throw new IllegalArgumentException("Processor desconhecido: " + value);
+    }
+
 }
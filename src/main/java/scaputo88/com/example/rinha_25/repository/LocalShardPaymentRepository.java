@@ -0,0 +1,291 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import scaputo88.com.example.rinha_25.model.Payment;
+import scaputo88.com.example.rinha_25.model.PaymentSummary;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shard local na frente do {@link RedisPaymentRepository} ({@code payments.local-shard.enabled=true}).
+ * O {@code save} só publica o pagamento num anel em memória; um flusher manda o que foi publicado para
+ * o Redis a cada {@code payments.local-shard.flush-ms} via {@link RedisPaymentRepository#saveAll}, um
+ * EVALSHA por até 500 pagamentos em vez de um por pagamento.
+ * <p>
+ * O {@code save} não pega lock: reserva a posição no anel com CAS em {@code head}, soma o pagamento nos
+ * {@link LongAdder}s do processor e publica a entrada. O flusher é o único consumidor.
+ * <p>
+ * O {@code getSummary} soma o que já está no Redis com a cauda local ainda não enviada: os acumuladores,
+ * quando o intervalo é aberto, ou uma varredura do anel. Para nenhum pagamento contar duas vezes nem
+ * sumir durante um flush, o resumo é otimista: lê {@code flushSeq} antes e depois (ímpar = flush em
+ * andamento) e repete se um flush passou no meio; só depois de {@value #OPTIMISTIC_READS} tentativas
+ * espera o flush em curso ({@code flushLock}). A cauda não enviada da <em>outra</em> instância só aparece
+ * após o próximo flush dela.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "payments.local-shard.enabled", havingValue = "true")
+public class LocalShardPaymentRepository implements PaymentRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalShardPaymentRepository.class);
+
+    private static final int OPTIMISTIC_READS = 4;
+
+    private final RedisPaymentRepository redis;
+    private final ScheduledExecutorService flusher;
+
+    // Anel de pagamentos ainda não enviados: posições [tail, head) reservadas; uma posição reservada
+    // fica null até o save publicar a entrada
+    private final AtomicReferenceArray<Payment> ring;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    // Escrito só pelo flusher (e pelo purge, sob flushLock)
+    private volatile long tail;
+
+    // Totais da cauda não enviada, por processor
+    private final Totals pendingDefault = new Totals();
+    private final Totals pendingFallback = new Totals();
+
+    // Incrementado no início e no fim de cada flush/purge
+    private final AtomicLong flushSeq = new AtomicLong();
+    // Exclui flush e purge entre si; o resumo só espera por ele depois das leituras otimistas
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public LocalShardPaymentRepository(RedisPaymentRepository redis,
+                                       @Value("${payments.local-shard.flush-ms:20}") long flushMs,
+                                       @Value("${payments.local-shard.max-pending:100000}") int maxPending) {
+        this.redis = redis;
+        int capacity = 16;
+        while (capacity < maxPending && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "local-shard-flush");
+            t.setDaemon(true);
+            return t;
+        });
+        this.flusher.scheduleWithFixedDelay(this::flush, flushMs, flushMs, TimeUnit.MILLISECONDS);
+        log.info("LocalShardPaymentRepository inicializado: flushMs={}, capacity={}", flushMs, capacity);
+    }
+
+    @Override
+    public void save(Payment payment) {
+        long seq;
+        do {
+            seq = head.get();
+            if (seq - tail > mask) {
+                // Redis fora há tempo demais: não acumula mais memória, tenta gravar direto
+                log.warn("Shard local cheio ({} pendentes), gravando direto no Redis", mask + 1);
+                redis.save(payment);
+                return;
+            }
+        } while (!head.compareAndSet(seq, seq + 1));
+        // Soma antes de publicar: o flusher só desconta o que já viu publicado
+        totals(payment).add(payment);
+        ring.set((int) seq & mask, payment);
+    }
+
+    @Override
+    public PaymentSummary getSummary(Instant from, Instant to) {
+        for (int attempt = 0; attempt < OPTIMISTIC_READS; attempt++) {
+            long before = flushSeq.get();
+            if ((before & 1) == 0) {
+                PaymentSummary summary = readSummary(from, to);
+                if (flushSeq.get() == before) {
+                    return summary;
+                }
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+        flushLock.lock();
+        try {
+            return readSummary(from, to);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Com cauda local pendente a versão é desconhecida: cada {@code save} muda o resumo sem passar
+     * pelo Redis. Sem cauda, vale a versão do Redis, que o flush incrementa.
+     */
+    @Override
+    public long dataVersion() {
+        if (head.get() != tail) {
+            return -1L;
+        }
+        return redis.dataVersion();
+    }
+
+    @Override
+    public void purgePayments() {
+        flushLock.lock();
+        flushSeq.incrementAndGet();
+        try {
+            drain(true);
+            redis.purgePayments();
+        } finally {
+            flushSeq.incrementAndGet();
+            flushLock.unlock();
+        }
+    }
+
+    @Override
+    public int migrateLegacyMembers() {
+        return redis.migrateLegacyMembers();
+    }
+
+    @PreDestroy
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private PaymentSummary readSummary(Instant from, Instant to) {
+        PaymentSummary flushed = redis.getSummary(from, to);
+        if (from == null && to == null) {
+            return addPending(flushed);
+        }
+        return addTail(flushed, from, to);
+    }
+
+    private void flush() {
+        if (head.get() == tail) {
+            return;
+        }
+        flushLock.lock();
+        flushSeq.incrementAndGet();
+        try {
+            List<Payment> batch = drain(false);
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                redis.saveAll(batch);
+            } catch (Exception e) {
+                // As entradas continuam no anel e vão no próximo flush; reenviar é seguro (ZADD NX no script)
+                log.warn("Falha ao enviar {} pagamentos do shard local: {}", batch.size(), e.getMessage());
+                return;
+            }
+            release(batch);
+        } finally {
+            flushSeq.incrementAndGet();
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Lê as entradas publicadas a partir de {@code tail}, parando na primeira reservada e ainda não
+     * publicada. Com {@code discard}, já as tira do anel e dos acumuladores.
+     */
+    private List<Payment> drain(boolean discard) {
+        List<Payment> batch = new ArrayList<>();
+        long end = head.get();
+        for (long seq = tail; seq < end; seq++) {
+            Payment payment = ring.get((int) seq & mask);
+            if (payment == null) {
+                break;
+            }
+            batch.add(payment);
+        }
+        if (discard) {
+            release(batch);
+        }
+        return batch;
+    }
+
+    // Libera do anel e dos acumuladores as entradas lidas pelo drain (já gravadas no Redis ou descartadas)
+    private void release(List<Payment> batch) {
+        long seq = tail;
+        for (Payment payment : batch) {
+            ring.set((int) seq++ & mask, null);
+            totals(payment).subtract(payment);
+        }
+        tail = seq;
+    }
+
+    private Totals totals(Payment payment) {
+        return "fallback".equals(payment.processorUsed()) ? pendingFallback : pendingDefault;
+    }
+
+    private PaymentSummary addPending(PaymentSummary base) {
+        return new PaymentSummary(
+                base.default_total_amount() + pendingDefault.amount.sum(),
+                base.default_total_fee() + pendingDefault.fee.sum(),
+                base.default_total_requests() + pendingDefault.requests.sum(),
+                base.fallback_total_amount() + pendingFallback.amount.sum(),
+                base.fallback_total_fee() + pendingFallback.fee.sum(),
+                base.fallback_total_requests() + pendingFallback.requests.sum());
+    }
+
+    // Varre a cauda publicada; posições reservadas e ainda não publicadas são pagamentos que o resumo
+    // ainda não precisa ver
+    private PaymentSummary addTail(PaymentSummary base, Instant from, Instant to) {
+        long defAmount = base.default_total_amount(), defFee = base.default_total_fee(), defRequests = base.default_total_requests();
+        long fbAmount = base.fallback_total_amount(), fbFee = base.fallback_total_fee(), fbRequests = base.fallback_total_requests();
+        long end = head.get();
+        for (long seq = tail; seq < end; seq++) {
+            Payment p = ring.get((int) seq & mask);
+            if (p == null) {
+                continue;
+            }
+            Instant ts = p.timestamp();
+            if ((from != null && ts.isBefore(from)) || (to != null && ts.isAfter(to))) {
+                continue;
+            }
+            if ("fallback".equals(p.processorUsed())) {
+                fbRequests++;
+                fbAmount += p.amountCents();
+                fbFee += p.feeCents();
+            } else {
+                defRequests++;
+                defAmount += p.amountCents();
+                defFee += p.feeCents();
+            }
+        }
+        return new PaymentSummary(defAmount, defFee, defRequests, fbAmount, fbFee, fbRequests);
+    }
+
+    /** Contagem, valor e taxa em centavos de um processor; cada um é um {@link LongAdder}, sem contenção no save. */
+    private static final class Totals {
+
+        final LongAdder requests = new LongAdder();
+        final LongAdder amount = new LongAdder();
+        final LongAdder fee = new LongAdder();
+
+        void add(Payment p) {
+            requests.increment();
+            amount.add(p.amountCents());
+            fee.add(p.feeCents());
+        }
+
+        void subtract(Payment p) {
+            requests.decrement();
+            amount.add(-p.amountCents());
+            fee.add(-p.feeCents());
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * Agrupa itens enviados por várias threads e entrega lotes a uma única thread de flush.
+ * Um lote fecha quando atinge {@code maxBatchSize} ou quando {@code maxDelayMicros}
+ * se passa desde o primeiro item. Um flush que falha é repetido até {@code maxFlushAttempts} vezes
+ * (o flusher precisa aceitar o mesmo lote de novo); esgotadas as tentativas, o lote é perdido e
+ * {@code onDropped} recebe quantos itens eram.
+ */
+final class MicroBatcher<T> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(MicroBatcher.class);
+
+    private final BlockingQueue<T> queue;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final int maxFlushAttempts;
+    private final Consumer<List<T>> flusher;
+    private final IntConsumer onDropped;
+    // Retirar itens da fila e gravá-los acontece sob o lock, assim como o clear: um lote já montado
+    // termina antes do clear e nada anterior a ele é gravado depois. Justo para o clear não esperar mais
+    // que um ciclo da thread de flush.
+    private final ReentrantLock flushLock = new ReentrantLock(true);
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    MicroBatcher(String name, int capacity, int maxBatchSize, long maxDelayMicros, int maxFlushAttempts,
+                 Consumer<List<T>> flusher, IntConsumer onDropped) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = TimeUnit.MICROSECONDS.toNanos(maxDelayMicros);
+        this.maxFlushAttempts = Math.max(1, maxFlushAttempts);
+        this.flusher = flusher;
+        this.onDropped = onDropped;
+        this.thread = new Thread(this::loop, name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * @return false se a fila estiver cheia (o chamador deve gravar de forma síncrona)
+     */
+    boolean offer(T item) {
+        return running && queue.offer(item);
+    }
+
+    /**
+     * Descarta o que está na fila e roda {@code action} (ex.: o purge) sem nenhum lote em voo: o lote que
+     * a thread de flush estiver montando ou gravando termina antes. Itens oferecidos durante a
+     * {@code action} ficam na fila e são gravados depois dela.
+     */
+    void clear(Runnable action) {
+        flushLock.lock();
+        try {
+            queue.clear();
+            action.run();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void loop() {
+        List<T> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                flushLock.lockInterruptibly();
+                try {
+                    collectAndFlush(batch);
+                } finally {
+                    flushLock.unlock();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        flushLock.lock();
+        try {
+            drainRemaining(batch);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void collectAndFlush(List<T> batch) throws InterruptedException {
+        T first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return;
+        }
+        batch.add(first);
+        queue.drainTo(batch, maxBatchSize - batch.size());
+
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (batch.size() < maxBatchSize) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) break;
+            T next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) break;
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+        flush(batch);
+    }
+
+    private void drainRemaining(List<T> batch) {
+        while (queue.drainTo(batch, maxBatchSize) > 0 || !batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private void flush(List<T> batch) {
+        try {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    flusher.accept(batch);
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= maxFlushAttempts || !backoff(attempt)) {
+                        log.error("Lote de {} itens perdido após {} tentativas: {}", batch.size(), attempt, e.getMessage(), e);
+                        onDropped.accept(batch.size());
+                        return;
+                    }
+                    log.warn("Erro ao gravar lote de {} itens (tentativa {}), repetindo: {}", batch.size(), attempt,
+                            e.getMessage());
+                }
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    // 10ms, 20ms, 40ms...; false se a thread foi interrompida
+    private static boolean backoff(int attempt) {
+        try {
+            Thread.sleep(10L << Math.min(attempt - 1, 6));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,395 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+import scaputo88.com.example.rinha_25.model.Payment;
+import scaputo88.com.example.rinha_25.model.PaymentSummary;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Pagamentos em colunas fora do heap ({@code payments.store=offheap}), sem Redis no caminho do
+ * {@code save}/{@code getSummary}. Cada instância guarda só o que ela processou.
+ * <p>
+ * O arquivo {@code payments.offheap.path} é mapeado em memória ({@code MappedByteBuffer}, fora do heap e do
+ * limite de {@code -XX:MaxDirectMemorySize}) em regiões de {@code payments.offheap.capacity} linhas:
+ * timestamp (epoch millis), valor em centavos, UUID (hi/lo) e processor (1 byte), mais um índice de UUIDs em
+ * endereçamento aberto que faz o papel do {@code ZADD NX}. As colunas ficam ordenadas por timestamp:
+ * {@code save} (um escritor por vez) acrescenta no fim e, quando o pagamento chega fora de ordem, o desloca
+ * para trás até a posição certa.
+ * <p>
+ * Como os buckets do {@link RedisPaymentRepository}, cada bloco de {@value #BLOCK_ROWS} linhas guarda seus
+ * totais (região {@code blocks}, mantida pelo {@code save}). {@code getSummary} faz duas buscas binárias na
+ * coluna de timestamps, soma os blocos inteiros da fatia e percorre com laços primitivos só as bordas
+ * parciais, no máximo dois blocos. Tudo sem lock: lê com {@link StampedLock#tryOptimisticRead}, que só é
+ * invalidada por um deslocamento (o acréscimo puro publica a linha antes de aumentar o {@code size}), e só
+ * então refaz a soma com o lock de leitura.
+ * <p>
+ * O arquivo sobrevive a restart: o cabeçalho guarda o tamanho; índice e blocos são reconstruídos das colunas na
+ * subida.
+ */
+@Repository
+@Primary
+@ConditionalOnProperty(name = "payments.store", havingValue = "offheap")
+public class OffHeapPaymentRepository implements PaymentRepository, AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(OffHeapPaymentRepository.class);
+
+    private static final long MAGIC = 0x5041594d4f464631L; // "PAYMOFF1"
+    private static final int HEADER_BYTES = 64;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int CAPACITY_OFFSET = 8;
+    private static final int SIZE_OFFSET = 16;
+    // Índice com o dobro de slots das linhas (16 bytes cada): cada região mapeada fica abaixo de 2GB
+    private static final int MAX_CAPACITY = 1 << 25;
+
+    private static final int BLOCK_ROWS = 1024;
+    // Campos por bloco (e do acumulador do resumo)
+    private static final int AMOUNT = 0;
+    private static final int FEE = 1;
+    private static final int FALLBACK_COUNT = 2;
+    private static final int FALLBACK_AMOUNT = 3;
+    private static final int FALLBACK_FEE = 4;
+    private static final int FIELDS = 5;
+
+    private static final int DEFAULT_FEE_PERCENT = ProcessorType.DEFAULT.feePercent;
+    private static final int FALLBACK_FEE_PERCENT = ProcessorType.FALLBACK.feePercent;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final LongBuffer timestamps;
+    private final LongBuffer amounts;
+    private final LongBuffer idHi;
+    private final LongBuffer idLo;
+    private final ByteBuffer processors;
+    // FIELDS longs por bloco de BLOCK_ROWS linhas
+    private final LongBuffer blocks;
+    // Pares (hi, lo) por slot; (0, 0) é slot vazio
+    private final LongBuffer index;
+    private final int capacity;
+    private final int indexMask;
+
+    // Invalidado só por deslocamentos (pagamento fora de ordem) e pelo purge
+    private final StampedLock shifts = new StampedLock();
+    private final AtomicLong version = new AtomicLong();
+    private volatile int size;
+
+    public OffHeapPaymentRepository(@Value("${payments.offheap.path:${java.io.tmpdir}/rinha-payments.dat}") String path,
+                                    @Value("${payments.offheap.capacity:1048576}") int capacity) {
+        this.capacity = Math.max(1, Math.min(capacity, MAX_CAPACITY));
+        int slots = Integer.highestOneBit(this.capacity * 2 - 1) << 1;
+        this.indexMask = slots - 1;
+        try {
+            this.channel = FileChannel.open(Path.of(path),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            boolean reuse = sameLayout();
+            if (!reuse) {
+                // Arquivo novo ou de outra capacidade: recomeça zerado (antes de mapear, ou o mapeamento
+                // ficaria além do fim do arquivo)
+                channel.truncate(0);
+            }
+            this.header = map(0, HEADER_BYTES);
+            long offset = HEADER_BYTES;
+            long column = (long) this.capacity * Long.BYTES;
+            this.timestamps = map(offset, column).asLongBuffer();
+            this.amounts = map(offset += column, column).asLongBuffer();
+            this.idHi = map(offset += column, column).asLongBuffer();
+            this.idLo = map(offset += column, column).asLongBuffer();
+            this.processors = map(offset += column, this.capacity);
+            long indexBytes = (long) slots * 2 * Long.BYTES;
+            this.index = map(offset += this.capacity, indexBytes).asLongBuffer();
+            int blockCount = (this.capacity + BLOCK_ROWS - 1) / BLOCK_ROWS;
+            this.blocks = map(offset + indexBytes, (long) blockCount * FIELDS * Long.BYTES).asLongBuffer();
+
+            if (reuse) {
+                this.size = (int) Math.min(header.getLong(SIZE_OFFSET), this.capacity);
+                rebuild();
+            } else {
+                header.putLong(MAGIC_OFFSET, MAGIC);
+                header.putLong(CAPACITY_OFFSET, this.capacity);
+                header.putLong(SIZE_OFFSET, 0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Falha ao mapear " + path, e);
+        }
+        log.info("OffHeapPaymentRepository inicializado: path={}, capacity={}, pagamentos={}", path, this.capacity, size);
+    }
+
+    private boolean sameLayout() throws IOException {
+        ByteBuffer existing = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.nativeOrder());
+        channel.read(existing, 0);
+        return existing.position() == HEADER_BYTES
+                && existing.getLong(MAGIC_OFFSET) == MAGIC
+                && existing.getLong(CAPACITY_OFFSET) == capacity;
+    }
+
+    private MappedByteBuffer map(long offset, long bytes) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, offset, bytes);
+        buffer.order(ByteOrder.nativeOrder());
+        return buffer;
+    }
+
+    /**
+     * @throws IllegalStateException com o store cheio: o pagamento não é gravado e o chamador o conta como
+     * descartado ({@code payments.dropped})
+     */
+    @Override
+    public synchronized void save(Payment payment) {
+        int n = size;
+        if (n == capacity) {
+            throw new IllegalStateException("Store off-heap cheio (" + capacity
+                    + " pagamentos); aumente payments.offheap.capacity");
+        }
+        long hi = payment.correlationId().getMostSignificantBits();
+        long lo = payment.correlationId().getLeastSignificantBits();
+        if (!indexAdd(hi, lo)) {
+            return;
+        }
+        long ts = payment.timestamp().toEpochMilli();
+        long cents = payment.amountCents();
+        byte processor = (byte) (payment.usedFallback() ? 1 : 0);
+
+        if (n > 0 && timestamps.get(n - 1) > ts) {
+            long stamp = shifts.writeLock();
+            try {
+                int pos = n;
+                while (pos > 0 && timestamps.get(pos - 1) > ts) {
+                    copyRow(pos - 1, pos);
+                    pos--;
+                }
+                writeRow(pos, ts, cents, hi, lo, processor);
+                size = n + 1;
+            } finally {
+                shifts.unlockWrite(stamp);
+            }
+        } else {
+            writeRow(n, ts, cents, hi, lo, processor);
+            size = n + 1;
+        }
+        header.putLong(SIZE_OFFSET, n + 1);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public PaymentSummary getSummary(Instant from, Instant to) {
+        long min = (from != null) ? from.toEpochMilli() : Long.MIN_VALUE;
+        long max = (to != null) ? to.toEpochMilli() : Long.MAX_VALUE;
+
+        long stamp = shifts.tryOptimisticRead();
+        if (stamp != 0) {
+            PaymentSummary summary = sum(min, max);
+            if (shifts.validate(stamp)) {
+                return summary;
+            }
+        }
+        stamp = shifts.readLock();
+        try {
+            return sum(min, max);
+        } finally {
+            shifts.unlockRead(stamp);
+        }
+    }
+
+    private PaymentSummary sum(long min, long max) {
+        int n = size;
+        int lo = lowerBound(min, n);
+        int hi = (max == Long.MAX_VALUE) ? n : lowerBound(max + 1, n);
+
+        long[] acc = new long[FIELDS];
+        int firstBlock = (lo + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        int endBlock = hi / BLOCK_ROWS;
+        if (firstBlock < endBlock) {
+            sumRows(lo, firstBlock * BLOCK_ROWS, acc);
+            for (int b = firstBlock; b < endBlock; b++) {
+                int base = b * FIELDS;
+                for (int f = 0; f < FIELDS; f++) {
+                    acc[f] += blocks.get(base + f);
+                }
+            }
+            sumRows(endBlock * BLOCK_ROWS, hi, acc);
+        } else {
+            sumRows(lo, hi, acc);
+        }
+
+        long count = Math.max(0, hi - lo);
+        return new PaymentSummary(
+                acc[AMOUNT] - acc[FALLBACK_AMOUNT],
+                acc[FEE] - acc[FALLBACK_FEE],
+                count - acc[FALLBACK_COUNT],
+                acc[FALLBACK_AMOUNT],
+                acc[FALLBACK_FEE],
+                acc[FALLBACK_COUNT]
+        );
+    }
+
+    // Sem desvio por linha: processor (0/1) vira máscara para separar o fallback do total
+    private void sumRows(int from, int to, long[] acc) {
+        long amount = 0, fee = 0;
+        long fallbackCount = 0, fallbackAmount = 0, fallbackFee = 0;
+        for (int i = from; i < to; i++) {
+            long cents = amounts.get(i);
+            long fallback = processors.get(i);
+            long mask = -fallback;
+            long paymentFee = fee(cents, fallback);
+            amount += cents;
+            fee += paymentFee;
+            fallbackCount += fallback;
+            fallbackAmount += cents & mask;
+            fallbackFee += paymentFee & mask;
+        }
+        acc[AMOUNT] += amount;
+        acc[FEE] += fee;
+        acc[FALLBACK_COUNT] += fallbackCount;
+        acc[FALLBACK_AMOUNT] += fallbackAmount;
+        acc[FALLBACK_FEE] += fallbackFee;
+    }
+
+    // Mesmo arredondamento por pagamento de Money.feeCents
+    private static long fee(long cents, long fallback) {
+        return cents * (DEFAULT_FEE_PERCENT + (FALLBACK_FEE_PERCENT - DEFAULT_FEE_PERCENT) * fallback) / 100;
+    }
+
+    // Primeira linha com timestamp >= ts
+    private int lowerBound(long ts, int n) {
+        int lo = 0, hi = n;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps.get(mid) < ts) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /** Muda a cada pagamento gravado e a cada purge; só cresce enquanto o processo vive. */
+    @Override
+    public long dataVersion() {
+        return version.get();
+    }
+
+    @Override
+    public boolean instanceLocal() {
+        return true;
+    }
+
+    @Override
+    public synchronized void purgePayments() {
+        long stamp = shifts.writeLock();
+        try {
+            size = 0;
+            header.putLong(SIZE_OFFSET, 0);
+            clear(index);
+            clear(blocks);
+            version.incrementAndGet();
+        } finally {
+            shifts.unlockWrite(stamp);
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("Erro ao fechar store off-heap: {}", e.getMessage());
+        }
+    }
+
+    private void writeRow(int row, long ts, long cents, long hi, long lo, byte processor) {
+        timestamps.put(row, ts);
+        amounts.put(row, cents);
+        idHi.put(row, hi);
+        idLo.put(row, lo);
+        processors.put(row, processor);
+        addToBlock(row, cents, processor, 1);
+    }
+
+    // O total de cada bloco acompanha a linha que muda de bloco ao ser deslocada
+    private void copyRow(int from, int to) {
+        long cents = amounts.get(from);
+        byte processor = processors.get(from);
+        timestamps.put(to, timestamps.get(from));
+        amounts.put(to, cents);
+        idHi.put(to, idHi.get(from));
+        idLo.put(to, idLo.get(from));
+        processors.put(to, processor);
+        if (from / BLOCK_ROWS != to / BLOCK_ROWS) {
+            addToBlock(from, cents, processor, -1);
+            addToBlock(to, cents, processor, 1);
+        }
+    }
+
+    private void addToBlock(int row, long cents, long fallback, long sign) {
+        int base = row / BLOCK_ROWS * FIELDS;
+        long fee = fee(cents, fallback);
+        blocks.put(base + AMOUNT, blocks.get(base + AMOUNT) + sign * cents);
+        blocks.put(base + FEE, blocks.get(base + FEE) + sign * fee);
+        if (fallback != 0) {
+            blocks.put(base + FALLBACK_COUNT, blocks.get(base + FALLBACK_COUNT) + sign);
+            blocks.put(base + FALLBACK_AMOUNT, blocks.get(base + FALLBACK_AMOUNT) + sign * cents);
+            blocks.put(base + FALLBACK_FEE, blocks.get(base + FALLBACK_FEE) + sign * fee);
+        }
+    }
+
+    /** @return false se o UUID já está no índice. O UUID (0, 0) marca slot vazio e não é indexado. */
+    private boolean indexAdd(long hi, long lo) {
+        if (hi == 0 && lo == 0) {
+            return true;
+        }
+        int slot = slot(hi, lo);
+        while (true) {
+            long h = index.get(slot * 2);
+            long l = index.get(slot * 2 + 1);
+            if (h == 0 && l == 0) {
+                index.put(slot * 2, hi);
+                index.put(slot * 2 + 1, lo);
+                return true;
+            }
+            if (h == hi && l == lo) {
+                return false;
+            }
+            slot = (slot + 1) & indexMask;
+        }
+    }
+
+    private int slot(long hi, long lo) {
+        long h = (hi ^ lo) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & indexMask;
+    }
+
+    private static void clear(LongBuffer region) {
+        for (int i = 0, n = region.capacity(); i < n; i++) {
+            region.put(i, 0L);
+        }
+    }
+
+    // Na subida índice e blocos podem não corresponder ao tamanho gravado (queda no meio de um save)
+    private void rebuild() {
+        clear(index);
+        clear(blocks);
+        for (int i = 0; i < size; i++) {
+            indexAdd(idHi.get(i), idLo.get(i));
+            addToBlock(i, amounts.get(i), processors.get(i), 1);
+        }
+    }
+}
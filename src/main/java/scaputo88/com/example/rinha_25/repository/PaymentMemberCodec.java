@@ -0,0 +1,94 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import java.util.UUID;
+
+/**
+ * Formato binário dos members dos ZSETs de pagamentos ({@code payments:<epoch>:z:<janela>}):
+ * <pre>
+ * [0x01 versão][16 bytes UUID (msb, lsb)][varint((amountCents << 1) | fallback)]
+ * </pre>
+ * Um pagamento típico ocupa 19-21 bytes, contra 60+ do formato texto
+ * {@code processor|amount|fee|usedFallback|uuid}. A taxa não é gravada: ela é derivada do
+ * valor e do processor. Members legados começam com uma letra ASCII, nunca com {@code 0x01}.
+ */
+public final class PaymentMemberCodec {
+
+    public static final byte VERSION = 0x01;
+
+    private static final int UUID_OFFSET = 1;
+    private static final int VALUE_OFFSET = UUID_OFFSET + 16;
+
+    private PaymentMemberCodec() {
+    }
+
+    /** @throws IllegalArgumentException se {@code amountCents} for negativo: o varint não tem sinal */
+    public static byte[] encode(UUID correlationId, long amountCents, boolean fallback) {
+        if (amountCents < 0) {
+            throw new IllegalArgumentException("amountCents negativo: " + amountCents);
+        }
+        long value = (amountCents << 1) | (fallback ? 1 : 0);
+        byte[] member = new byte[VALUE_OFFSET + varintSize(value)];
+        member[0] = VERSION;
+        putLong(member, UUID_OFFSET, correlationId.getMostSignificantBits());
+        putLong(member, UUID_OFFSET + 8, correlationId.getLeastSignificantBits());
+        int i = VALUE_OFFSET;
+        while ((value & ~0x7FL) != 0) {
+            member[i++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        member[i] = (byte) value;
+        return member;
+    }
+
+    public static boolean isBinary(byte[] member) {
+        return member.length > VALUE_OFFSET && member[0] == VERSION;
+    }
+
+    /** Lê o varint {@code (amountCents << 1) | fallback} sem alocar. */
+    public static long packedValue(byte[] member) {
+        long value = 0;
+        int shift = 0;
+        for (int i = VALUE_OFFSET; i < member.length && shift < 64; i++, shift += 7) {
+            byte b = member[i];
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) break;
+        }
+        return value;
+    }
+
+    public static long amountCents(long packedValue) {
+        return packedValue >>> 1;
+    }
+
+    public static boolean isFallback(long packedValue) {
+        return (packedValue & 1) != 0;
+    }
+
+    public static UUID correlationId(byte[] member) {
+        return new UUID(getLong(member, UUID_OFFSET), getLong(member, UUID_OFFSET + 8));
+    }
+
+    private static int varintSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    private static void putLong(byte[] buf, int offset, long v) {
+        for (int i = 7; i >= 0; i--) {
+            buf[offset + i] = (byte) v;
+            v >>>= 8;
+        }
+    }
+
+    private static long getLong(byte[] buf, int offset) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) {
+            v = (v << 8) | (buf[offset + i] & 0xFF);
+        }
+        return v;
+    }
+}
@@ -4,10 +4,39 @@ import scaputo88.com.example.rinha_25.model.Payment;
 import scaputo88.com.example.rinha_25.model.PaymentSummary;
 
 import java.time.Instant;
+import java.util.List;
 
 public interface PaymentRepository {
     void save(Payment payment);
+
+    /** Grava um lote de uma vez; lança exceção se o lote não foi gravado (pode ser reenviado). */
+    default void saveAll(List<Payment> payments) {
+        payments.forEach(this::save);
+    }
+
     PaymentSummary getSummary(Instant from, Instant to);
+
+    /**
+     * Versão dos dados visíveis no {@link #getSummary}: muda sempre que um pagamento é gravado ou os
+     * dados são limpos. Deve ser lida <em>antes</em> do resumo. -1 quando desconhecida (resumo não
+     * pode ser reaproveitado).
+     */
+    default long dataVersion() {
+        return -1L;
+    }
+
     void purgePayments();
 
+    /**
+     * Os dados ficam só nesta instância (não são compartilhados com a outra)? Exigido pelo modo em cluster
+     * ({@code payments.peer.url}), que soma as duas parciais.
+     */
+    default boolean instanceLocal() {
+        return false;
+    }
+
+    default int migrateLegacyMembers() {
+        return 0;
+    }
+
 }
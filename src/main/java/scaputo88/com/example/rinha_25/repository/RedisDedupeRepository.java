@@ -0,0 +1,92 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * correlationIds já aceitos por alguma instância, com o UUID em 16 bytes. Cobre duplicatas que o nginx
+ * mandou para instâncias diferentes.
+ * <p>
+ * Um SET por janela de {@code payments.dedupe.window-ms}: {@code payments_seen:<janela>}. O claim consulta
+ * a janela anterior e grava na atual, então um id fica reivindicado por pelo menos uma janela inteira;
+ * cada SET expira duas janelas após a última gravação, e a memória no Redis fica limitada ao tráfego
+ * recente. O purge faz {@code UNLINK} das janelas que o claim ainda consulta e da seguinte (relógio
+ * adiantado em outra instância); as demais já expiram sozinhas.
+ */
+@Repository
+public class RedisDedupeRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisDedupeRepository.class);
+
+    private static final String SEEN_KEY_PREFIX = "payments_seen:";
+    // Layout anterior, um SET só e sem TTL; some no primeiro purge
+    private static final byte[] LEGACY_SEEN_KEY = "payments_seen".getBytes(StandardCharsets.UTF_8);
+
+    // KEYS: janela atual e anterior; ARGV: id e TTL em ms. Retorna 1 se o claim é novo
+    private static final byte[] CLAIM_SCRIPT = (
+            "if redis.call('SISMEMBER', KEYS[2], ARGV[1]) == 1 then return 0 end " +
+            "if redis.call('SADD', KEYS[1], ARGV[1]) == 0 then return 0 end " +
+            "redis.call('PEXPIRE', KEYS[1], ARGV[2]) " +
+            "return 1").getBytes(StandardCharsets.UTF_8);
+
+    private final RedisTemplate<String, String> redisTemplate;
+    private final long windowMs;
+    private final byte[] ttlArg;
+
+    public RedisDedupeRepository(RedisTemplate<String, String> redisTemplate,
+                                 @Value("${payments.dedupe.window-ms:60000}") long windowMs) {
+        this.redisTemplate = redisTemplate;
+        this.windowMs = Math.max(1, windowMs);
+        this.ttlArg = Long.toString(2 * this.windowMs).getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /** @return true se este é o primeiro claim do correlationId */
+    public boolean claim(UUID correlationId) {
+        long window = System.currentTimeMillis() / windowMs;
+        Long added = redisTemplate.execute((RedisCallback<Long>) connection ->
+                connection.scriptingCommands().eval(CLAIM_SCRIPT, ReturnType.INTEGER, 2,
+                        key(window), key(window - 1), bytes(correlationId), ttlArg));
+        return added != null && added > 0;
+    }
+
+    /** Liberação logo depois do claim: o id está na janela atual ou, se ela virou no meio, na anterior. */
+    public void release(UUID correlationId) {
+        long window = System.currentTimeMillis() / windowMs;
+        byte[] id = bytes(correlationId);
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            connection.setCommands().sRem(key(window), id);
+            connection.setCommands().sRem(key(window - 1), id);
+            return null;
+        });
+    }
+
+    public void purge() {
+        long window = System.currentTimeMillis() / windowMs;
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.keyCommands().unlink(key(window), key(window - 1), key(window + 1), LEGACY_SEEN_KEY));
+        } catch (Exception e) {
+            log.error("Erro ao limpar correlationIds vistos: {}", e.getMessage(), e);
+        }
+    }
+
+    private static byte[] key(long window) {
+        return (SEEN_KEY_PREFIX + window).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] bytes(UUID id) {
+        return ByteBuffer.allocate(16)
+                .putLong(id.getMostSignificantBits())
+                .putLong(id.getLeastSignificantBits())
+                .array();
+    }
+}
@@ -0,0 +1,44 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+/**
+ * Health check dos processors compartilhado entre as instâncias:
+ * <ul>
+ *   <li>{@code payments_health_lease_<processor>}: lease ({@code SET NX PX}) de quem pode consultar
+ *   {@code /payments/service-health} na janela; expira sozinho, sem liberação explícita;</li>
+ *   <li>{@code payments_health_<processor>}: último resultado publicado, lido por todas as instâncias.</li>
+ * </ul>
+ */
+@Repository
+public class RedisHealthRepository {
+
+    private static final String HEALTH_KEY_PREFIX = "payments_health_";
+    private static final String LEASE_KEY_PREFIX = "payments_health_lease_";
+    // Resultado sem republicação por esse tempo (nenhuma instância sondando) deixa de existir
+    private static final Duration RESULT_TTL = Duration.ofMinutes(1);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisHealthRepository(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /** @return true se esta instância ficou com o lease de {@code processor} por {@code ttlMs} */
+    public boolean tryLease(String processor, String owner, long ttlMs) {
+        Boolean acquired = redisTemplate.opsForValue().setIfAbsent(LEASE_KEY_PREFIX + processor, owner, Duration.ofMillis(ttlMs));
+        return Boolean.TRUE.equals(acquired);
+    }
+
+    public void publish(String processor, String result) {
+        redisTemplate.opsForValue().set(HEALTH_KEY_PREFIX + processor, result, RESULT_TTL);
+    }
+
+    /** @return último resultado publicado, ou null */
+    public String read(String processor) {
+        return redisTemplate.opsForValue().get(HEALTH_KEY_PREFIX + processor);
+    }
+}
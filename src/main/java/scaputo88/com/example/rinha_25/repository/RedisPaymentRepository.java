@@ -1,122 +1,837 @@
 package scaputo88.com.example.rinha_25.repository;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.connection.zset.Tuple;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Repository;
+import scaputo88.com.example.rinha_25.model.Money;
 import scaputo88.com.example.rinha_25.model.Payment;
 import scaputo88.com.example.rinha_25.model.PaymentSummary;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
 
-import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+/**
+ * Pagamentos no Redis particionados por janela de tempo ({@code payments.partition.width-ms}, default 1min) e
+ * por epoch ({@code payments_epoch}). Cada janela {@code w} do epoch {@code e} tem suas próprias chaves:
+ * <ul>
+ *   <li>{@code payments:e:z:w} — ZSET dos pagamentos (score = epoch millis, member {@link PaymentMemberCodec});</li>
+ *   <li>{@code payments:e:t:w} — hash com os totais da janela ({@code <processor>:c|a|f});</li>
+ *   <li>{@code payments:e:b:w} + {@code payments:e:i:w} — buckets de {@code payments.bucket-width-ms} e seu índice;</li>
+ * </ul>
+ * e {@code payments:e:windows} indexa as janelas existentes. O resumo soma os totais das janelas inteiramente
+ * contidas no intervalo e só desce aos buckets/members nas (no máximo duas) janelas das bordas.
+ * <p>
+ * O purge só incrementa o epoch (gravações e resumos passam a usar chaves novas) e apaga as do epoch anterior
+ * com {@code UNLINK} numa thread à parte. Os scripts montam os nomes das chaves a partir do epoch, o que
+ * pressupõe um Redis sem cluster (como o do compose).
+ */
 @Repository
 public class RedisPaymentRepository implements PaymentRepository {
 
     private static final Logger log = LoggerFactory.getLogger(RedisPaymentRepository.class);
 
-    private static final String SUMMARY_KEY = "payments_summary";
-    private static final String ZSET_KEY = "payments_zset";
+    private static final String EPOCH_KEY = "payments_epoch";
+    // Incrementada a cada gravação que muda os totais; chave do cache de resumo no PaymentService
+    private static final String VERSION_KEY = "payments_version";
+    // Layout anterior (um ZSET e agregados únicos), só lido por migrateLegacyMembers e apagado no purge
+    private static final String LEGACY_ZSET_KEY = "payments_zset";
+    private static final List<String> LEGACY_KEYS =
+            List.of("payments_summary", LEGACY_ZSET_KEY, "payments_buckets", "payments_buckets_idx");
+
+    private static final String[] PROCESSORS = {"default", "fallback"};
+    private static final int MIGRATION_CHUNK = 500;
+    private static final int SAVE_ALL_CHUNK = 500;
+    private static final int UNLINK_CHUNK = 512;
+    private static final int ARGS_PER_PAYMENT = 8;
+
+    private static final List<String> SAVE_KEYS = List.of(EPOCH_KEY, VERSION_KEY);
+
+    // Gravação de um ou mais pagamentos numa execução atômica. ARGV[1..2]: TTL em ms do detalhe e da janela
+    // (0 = sem TTL), depois grupos de 8: member (PaymentMemberCodec), timestamp, processor, bucket,
+    // amountCents, feeCents, janela e a janela mais antiga em que um member igual já conta como gravado
+    // (redelivery do stream processada minutos depois). Só pagamento novo entra nos totais da janela e no
+    // bucket (HINCRBY em centavos); havendo algum, a versão dos dados (KEYS[2]) é incrementada. Retorna
+    // quantos eram novos.
+    private static final RedisScript<Long> SAVE_SCRIPT = new DefaultRedisScript<>(
+            "local ns = 'payments:' .. (redis.call('GET', KEYS[1]) or '0') .. ':' " +
+            "local detailTtl, windowTtl = tonumber(ARGV[1]), tonumber(ARGV[2]) " +
+            "local n, touched = 0, {} " +
+            "for i = 3, #ARGV, 8 do " +
+            "  local m, w = ARGV[i], ARGV[i + 6] " +
+            "  local dup = false " +
+            "  for pw = tonumber(w) - 1, tonumber(ARGV[i + 7]), -1 do " +
+            "    if redis.call('ZSCORE', ns .. 'z:' .. pw, m) then dup = true break end " +
+            "  end " +
+            "  if not dup and redis.call('ZADD', ns .. 'z:' .. w, 'NX', ARGV[i + 1], m) == 1 then " +
+            "    local proc, b, a, f = ARGV[i + 2], ARGV[i + 3], ARGV[i + 4], ARGV[i + 5] " +
+            "    local t = ns .. 't:' .. w " +
+            "    redis.call('HINCRBY', t, proc .. ':c', 1) " +
+            "    redis.call('HINCRBY', t, proc .. ':a', a) " +
+            "    redis.call('HINCRBY', t, proc .. ':f', f) " +
+            "    local p = b .. ':' .. proc .. ':' " +
+            "    redis.call('HINCRBY', ns .. 'b:' .. w, p .. 'c', 1) " +
+            "    redis.call('HINCRBY', ns .. 'b:' .. w, p .. 'a', a) " +
+            "    redis.call('HINCRBY', ns .. 'b:' .. w, p .. 'f', f) " +
+            "    redis.call('ZADD', ns .. 'i:' .. w, b, b) " +
+            "    if not touched[w] then " +
+            "      touched[w] = true " +
+            "      redis.call('ZADD', ns .. 'windows', w, w) " +
+            "    end " +
+            "    n = n + 1 " +
+            "  end " +
+            "end " +
+            "if n == 0 then return 0 end " +
+            "for w in pairs(touched) do " +
+            "  if detailTtl > 0 then " +
+            "    redis.call('PEXPIRE', ns .. 'z:' .. w, detailTtl) " +
+            "    redis.call('PEXPIRE', ns .. 'b:' .. w, detailTtl) " +
+            "    redis.call('PEXPIRE', ns .. 'i:' .. w, detailTtl) " +
+            "  end " +
+            "  if windowTtl > 0 then redis.call('PEXPIRE', ns .. 't:' .. w, windowTtl) end " +
+            "end " +
+            "if windowTtl > 0 then redis.call('PEXPIRE', ns .. 'windows', windowTtl) end " +
+            "redis.call('INCR', KEYS[2]) " +
+            "return n",
+            Long.class);
+
+    // Resumo calculado dentro do Redis, retornando os 6 totais em centavos: totais das janelas
+    // inteiras + bordas (ZSET) e buckets das janelas parciais. ARGV: taxa % default, taxa % fallback,
+    // janelas inteiras min/max ("" = nenhuma), depois grupos de 7 por janela parcial: janela,
+    // bordaEsq min/max, buckets min/max, bordaDir min/max ("" = trecho ausente). Janela parcial cujo
+    // detalhe expirou (detail-ttl-ms) entra pelos totais inteiros e é listada depois dos 6 totais
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> SUMMARY_SCRIPT = new DefaultRedisScript<>(
+            "local ns = 'payments:' .. (redis.call('GET', KEYS[1]) or '0') .. ':' " +
+            "local t = {0, 0, 0, 0, 0, 0} " +
+            "local pct = {tonumber(ARGV[1]), tonumber(ARGV[2])} " +
+            "local function scan(key, min, max) " +
+            "  if min == '' then return end " +
+            "  for _, m in ipairs(redis.call('ZRANGEBYSCORE', key, min, max)) do " +
+            "    local v, mul, i = 0, 1, 18 " +
+            "    while true do " +
+            "      local b = string.byte(m, i) " +
+            "      if not b then break end " +
+            "      v = v + (b % 128) * mul " +
+            "      if b < 128 then break end " +
+            "      mul = mul * 128 " +
+            "      i = i + 1 " +
+            "    end " +
+            "    local fb = v % 2 " +
+            "    local cents = (v - fb) / 2 " +
+            "    local o = fb * 3 " +
+            "    t[o + 1] = t[o + 1] + 1 " +
+            "    t[o + 2] = t[o + 2] + cents " +
+            "    t[o + 3] = t[o + 3] + math.floor(cents * pct[fb + 1] / 100) " +
+            "  end " +
+            "end " +
+            "local function add(v) " +
+            "  for i = 1, 6 do t[i] = t[i] + (tonumber(v[i]) or 0) end " +
+            "end " +
+            "local function window(w) " +
+            "  add(redis.call('HMGET', ns .. 't:' .. w, 'default:c', 'default:a', 'default:f', " +
+            "      'fallback:c', 'fallback:a', 'fallback:f')) " +
+            "end " +
+            "local function buckets(w, min, max) " +
+            "  if min == '' then return end " +
+            "  for _, b in ipairs(redis.call('ZRANGEBYSCORE', ns .. 'i:' .. w, min, max)) do " +
+            "    add(redis.call('HMGET', ns .. 'b:' .. w, b .. ':default:c', b .. ':default:a', b .. ':default:f', " +
+            "        b .. ':fallback:c', b .. ':fallback:a', b .. ':fallback:f')) " +
+            "  end " +
+            "end " +
+            "if ARGV[3] ~= '' then " +
+            "  for _, w in ipairs(redis.call('ZRANGEBYSCORE', ns .. 'windows', ARGV[3], ARGV[4])) do " +
+            "    window(w) " +
+            "  end " +
+            "end " +
+            "for i = 5, #ARGV, 7 do " +
+            "  local w = ARGV[i] " +
+            "  if redis.call('EXISTS', ns .. 'z:' .. w) == 0 and redis.call('EXISTS', ns .. 't:' .. w) == 1 then " +
+            "    window(w) " +
+            "    t[#t + 1] = tonumber(w) " +
+            "  else " +
+            "    scan(ns .. 'z:' .. w, ARGV[i + 1], ARGV[i + 2]) " +
+            "    buckets(w, ARGV[i + 3], ARGV[i + 4]) " +
+            "    scan(ns .. 'z:' .. w, ARGV[i + 5], ARGV[i + 6]) " +
+            "  end " +
+            "end " +
+            "return t",
+            List.class);
+
+    // Troca de epoch do purge: as próximas gravações e resumos já usam o novo; retorna o anterior
+    private static final RedisScript<Long> PURGE_SCRIPT = new DefaultRedisScript<>(
+            "local old = tonumber(redis.call('GET', KEYS[1]) or '0') " +
+            "redis.call('INCR', KEYS[1]) " +
+            "redis.call('INCR', KEYS[2]) " +
+            "return old",
+            Long.class);
+
+    public enum SummaryMode {
+        /** Soma totais de janelas e buckets no cliente e varre só as bordas dos ZSETs. */
+        BUCKETS,
+        /** Varre todo o intervalo dos ZSETs das janelas e soma no cliente (comportamento original). */
+        SCAN,
+        /** Mesmo plano de BUCKETS, executado dentro do Redis via Lua. */
+        SCRIPT
+    }
 
     private final RedisTemplate<String, String> redisTemplate;
+    private final long bucketWidthMs;
+    private final long windowWidthMs;
+    private final long dedupeWindows;
+    private final boolean detailExpires;
+    private final byte[] detailTtlArg;
+    private final byte[] windowTtlArg;
+    private final SummaryMode summaryMode;
+    private final MicroBatcher<byte[][]> writeBatcher;
+    private final Counter dropped;
+    private final ExecutorService unlinker;
+    private volatile byte[] saveScriptSha;
 
-    public RedisPaymentRepository(RedisTemplate<String, String> redisTemplate) {
+    public RedisPaymentRepository(RedisTemplate<String, String> redisTemplate,
+                                  MeterRegistry registry,
+                                  @Value("${payments.bucket-width-ms:100}") long bucketWidthMs,
+                                  @Value("${payments.partition.width-ms:60000}") long windowWidthMs,
+                                  @Value("${payments.partition.detail-ttl-ms:0}") long detailTtlMs,
+                                  @Value("${payments.partition.retention-ms:0}") long retentionMs,
+                                  @Value("${payments.partition.dedupe-lookback-ms:60000}") long dedupeLookbackMs,
+                                  @Value("${payments.summary.mode:buckets}") String summaryMode,
+                                  @Value("${payments.write.batch.enabled:true}") boolean batchEnabled,
+                                  @Value("${payments.write.batch.max-size:256}") int batchMaxSize,
+                                  @Value("${payments.write.batch.max-delay-us:200}") long batchMaxDelayUs,
+                                  @Value("${payments.write.batch.max-attempts:3}") int batchMaxAttempts) {
         this.redisTemplate = redisTemplate;
+        this.bucketWidthMs = Math.max(1, bucketWidthMs);
+        // Janela com número inteiro de buckets: um bucket nunca fica dividido entre duas janelas
+        long buckets = Math.max(1, (windowWidthMs + this.bucketWidthMs - 1) / this.bucketWidthMs);
+        this.windowWidthMs = buckets * this.bucketWidthMs;
+        this.dedupeWindows = (Math.max(0, dedupeLookbackMs) + this.windowWidthMs - 1) / this.windowWidthMs;
+        // O detalhe nunca sobrevive à janela: sem ele os totais continuam valendo, o contrário não
+        long detailTtl = Math.max(0, detailTtlMs);
+        long windowTtl = Math.max(0, retentionMs);
+        if (windowTtl > 0 && (detailTtl == 0 || detailTtl > windowTtl)) {
+            detailTtl = windowTtl;
+        }
+        this.detailExpires = detailTtl > 0;
+        this.detailTtlArg = ascii(Long.toString(detailTtl));
+        this.windowTtlArg = ascii(Long.toString(windowTtl));
+        this.summaryMode = SummaryMode.valueOf(summaryMode.trim().toUpperCase(Locale.ROOT));
+        // Mesmo contador do PaymentMetrics: pagamentos aceitos pelo processor que não chegaram ao Redis
+        this.dropped = Counter.builder("payments.dropped")
+                .description("Pagamentos descartados sem retentativa possível ou aceitos e não gravados")
+                .register(registry);
+        this.writeBatcher = batchEnabled
+                ? new MicroBatcher<>("redis-writer", 65536, Math.max(1, batchMaxSize), batchMaxDelayUs, batchMaxAttempts,
+                        this::flush, dropped::increment)
+                : null;
+        this.unlinker = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "redis-unlink");
+            t.setDaemon(true);
+            return t;
+        });
+        log.info("RedisPaymentRepository inicializado: bucketWidthMs={}, windowWidthMs={}, detailTtlMs={}, retentionMs={}, "
+                        + "dedupeWindows={}, summaryMode={}, batch={} (maxSize={}, maxDelayUs={}, maxAttempts={})",
+                this.bucketWidthMs, this.windowWidthMs, detailTtl, windowTtl, dedupeWindows, this.summaryMode,
+                batchEnabled, batchMaxSize, batchMaxDelayUs, batchMaxAttempts);
     }
 
+    /**
+     * Com o micro-batcher, enfileira e retorna; uma falha no lote é repetida lá e, se persistir, conta em
+     * {@code payments.dropped}. Sem ele (ou com a fila cheia) grava na hora e a falha sobe para quem chamou.
+     */
     @Override
     public void save(Payment payment) {
-        try {
-            String member = String.join("|",
-                    payment.processorUsed(),
-                    payment.amount() != null ? payment.amount().toString() : "0",
-                    payment.fee() != null ? payment.fee().toString() : "0",
-                    String.valueOf(payment.usedFallback()),
-                    payment.correlationId() != null ? payment.correlationId().toString() : UUID.randomUUID().toString()
-            );
-
-            Boolean added = redisTemplate.opsForZSet().addIfAbsent(ZSET_KEY, member, payment.timestamp().toEpochMilli());
-            if (Boolean.TRUE.equals(added)) {
-                String prefix = payment.processorUsed();
-                incrementHash(prefix + "_total_requests", 1);
-                incrementHash(prefix + "_total_amount", toDouble(payment.amount()));
-                incrementHash(prefix + "_total_fee", toDouble(payment.fee()));
-            }
+        byte[][] args = saveArgs(payment);
+        if (writeBatcher == null || !writeBatcher.offer(args)) {
+            flush(Collections.singletonList(args));
+        }
+    }
 
+    /**
+     * Grava o lote com {@code SAVE_SCRIPT}, um EVALSHA a cada {@value #SAVE_ALL_CHUNK} pagamentos,
+     * todos no mesmo pipeline. Ignora o micro-batcher; falhas sobem para quem chamou.
+     */
+    @Override
+    public void saveAll(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        List<byte[][]> chunks = new ArrayList<>(payments.size() / SAVE_ALL_CHUNK + 1);
+        for (int from = 0; from < payments.size(); from += SAVE_ALL_CHUNK) {
+            int to = Math.min(payments.size(), from + SAVE_ALL_CHUNK);
+            byte[][] keysAndArgs = new byte[SAVE_KEYS.size() + 2 + (to - from) * ARGS_PER_PAYMENT][];
+            int pos = 0;
+            for (String key : SAVE_KEYS) {
+                keysAndArgs[pos++] = key.getBytes(StandardCharsets.UTF_8);
+            }
+            keysAndArgs[pos++] = detailTtlArg;
+            keysAndArgs[pos++] = windowTtlArg;
+            for (int i = from; i < to; i++) {
+                byte[][] args = saveArgs(payments.get(i));
+                System.arraycopy(args, 0, keysAndArgs, pos, args.length);
+                pos += args.length;
+            }
+            chunks.add(keysAndArgs);
+        }
+        try {
+            executeSavePipeline(chunks);
         } catch (Exception e) {
-            log.error("Erro ao salvar pagamento no Redis: {}", e.getMessage(), e);
+            log.warn("Falha ao gravar lote ({} itens), recarregando script: {}", payments.size(), e.getMessage());
+            saveScriptSha = null;
+            executeSavePipeline(chunks);
         }
     }
 
     @Override
     public PaymentSummary getSummary(Instant from, Instant to) {
-        BigDecimal defAmount = BigDecimal.ZERO;
-        BigDecimal defFee = BigDecimal.ZERO;
-        long defRequests = 0;
-
-        BigDecimal fbAmount = BigDecimal.ZERO;
-        BigDecimal fbFee = BigDecimal.ZERO;
-        long fbRequests = 0;
+        Totals totals = new Totals();
 
         try {
-            double min = (from != null) ? from.toEpochMilli() : Double.NEGATIVE_INFINITY;
-            double max = (to != null) ? to.toEpochMilli() : Double.POSITIVE_INFINITY;
-
-            Set<String> results = redisTemplate.opsForZSet().rangeByScore(ZSET_KEY, min, max);
-
-            if (results != null) {
-                for (String r : results) {
-                    String[] parts = r.split("\\|");
-                    if (parts.length < 5) continue;
+            Long min = (from != null) ? from.toEpochMilli() : null;
+            Long max = (to != null) ? to.toEpochMilli() : null;
+            if (min != null && max != null && min > max) {
+                return totals.toSummary();
+            }
 
-                    String proc = parts[0];
-                    BigDecimal amount = safeBigDecimal(parts[1]);
-                    BigDecimal fee = safeBigDecimal(parts[2]);
+            if (summaryMode == SummaryMode.SCAN) {
+                String ns = namespace();
+                String firstWindow = (min != null) ? Long.toString(Math.floorDiv(min, windowWidthMs)) : "-inf";
+                String lastWindow = (max != null) ? Long.toString(Math.floorDiv(max, windowWidthMs)) : "+inf";
+                for (String window : windows(ns, firstWindow, lastWindow)) {
+                    scanMembers(ns + "z:" + window, score(min, "-inf"), score(max, "+inf"), totals);
+                }
+                return totals.toSummary();
+            }
 
-                    if ("default".equalsIgnoreCase(proc)) {
-                        defRequests++;
-                        defAmount = defAmount.add(amount);
-                        defFee = defFee.add(fee);
+            SummaryPlan plan = plan(min, max);
+            if (summaryMode == SummaryMode.SCRIPT) {
+                List<String> args = new ArrayList<>(4 + plan.partial().size() * 7);
+                args.add(Integer.toString(ProcessorType.DEFAULT.feePercent));
+                args.add(Integer.toString(ProcessorType.FALLBACK.feePercent));
+                args.add(plan.fullMin());
+                args.add(plan.fullMax());
+                for (PartialWindow partial : plan.partial()) {
+                    args.add(Long.toString(partial.window()));
+                    args.addAll(List.of(partial.ranges()));
+                }
+                List<?> result = redisTemplate.execute(SUMMARY_SCRIPT, List.of(EPOCH_KEY), args.toArray());
+                totals.add(result);
+                if (result != null && result.size() > 6) {
+                    warnLostDetail(result.subList(6, result.size()), from, to);
+                }
+            } else {
+                String ns = namespace();
+                mergeWindows(ns, plan.fullMin(), plan.fullMax(), totals);
+                List<Totals> edges = new ArrayList<>(plan.partial().size());
+                for (PartialWindow partial : plan.partial()) {
+                    Totals edge = new Totals();
+                    String[] r = partial.ranges();
+                    String zset = ns + "z:" + partial.window();
+                    scanMembers(zset, r[0], r[1], edge);
+                    mergeBuckets(ns, partial.window(), r[2], r[3], edge);
+                    scanMembers(zset, r[4], r[5], edge);
+                    edges.add(edge);
+                }
+                // Conferido depois das leituras: o detalhe pode ter expirado no meio delas
+                List<Long> lost = detailExpires ? lostDetail(ns, plan.partial()) : List.of();
+                for (int i = 0; i < edges.size(); i++) {
+                    long window = plan.partial().get(i).window();
+                    if (lost.contains(window)) {
+                        mergeWindows(ns, Long.toString(window), Long.toString(window), totals);
                     } else {
-                        fbRequests++;
-                        fbAmount = fbAmount.add(amount);
-                        fbFee = fbFee.add(fee);
+                        totals.add(edges.get(i));
                     }
                 }
+                if (!lost.isEmpty()) {
+                    warnLostDetail(lost, from, to);
+                }
             }
 
         } catch (Exception e) {
             log.error("Erro ao gerar resumo no Redis: {}", e.getMessage(), e);
         }
 
-        return new PaymentSummary(defAmount, defFee, defRequests, fbAmount, fbFee, fbRequests);
+        return totals.toSummary();
     }
 
+    /** Valor de {@code payments_version}; -1 se o Redis não respondeu. */
+    @Override
+    public long dataVersion() {
+        try {
+            String version = redisTemplate.opsForValue().get(VERSION_KEY);
+            return version != null ? Long.parseLong(version) : 0L;
+        } catch (Exception e) {
+            log.warn("Erro ao ler versão dos pagamentos: {}", e.getMessage());
+            return -1L;
+        }
+    }
+
+    /**
+     * Troca o epoch (e incrementa a versão) num único script, sem depender do tamanho dos dados; as chaves
+     * do epoch anterior e as do layout antigo são apagadas em segundo plano com {@code UNLINK}.
+     */
     @Override
     public void purgePayments() {
         try {
-            redisTemplate.delete(SUMMARY_KEY);
-            redisTemplate.delete(ZSET_KEY);
+            // Com o micro-batcher, o purge espera o lote em voo: senão ele seria gravado já no epoch novo
+            if (writeBatcher != null) {
+                writeBatcher.clear(this::swapEpoch);
+            } else {
+                swapEpoch();
+            }
         } catch (Exception e) {
             log.error("Erro ao limpar pagamentos: {}", e.getMessage(), e);
         }
     }
 
-    private void incrementHash(String field, double delta) {
-        redisTemplate.opsForHash().increment(SUMMARY_KEY, field, delta);
+    private void swapEpoch() {
+        Long previous = redisTemplate.execute(PURGE_SCRIPT, List.of(EPOCH_KEY, VERSION_KEY));
+        if (previous != null) {
+            unlinker.execute(() -> unlinkEpoch(previous));
+        }
     }
 
-    private double toDouble(BigDecimal bd) {
-        return bd != null ? bd.doubleValue() : 0.0;
+    /**
+     * Move os pagamentos do layout anterior ({@code payments_zset}, members binários ou no formato texto
+     * legado) para as janelas do epoch atual, preservando o timestamp, e apaga as chaves antigas. Vai em
+     * lotes de {@value #MIGRATION_CHUNK} (gravados e então removidos do ZSET antigo), então pode rodar com
+     * a aplicação recebendo tráfego e ser repetida se parar no meio: o ZADD NX da gravação descarta o que
+     * já tinha sido movido.
+     */
+    @Override
+    public int migrateLegacyMembers() {
+        byte[] key = LEGACY_ZSET_KEY.getBytes(StandardCharsets.UTF_8);
+        int migrated = 0;
+        int invalid = 0;
+        while (true) {
+            Set<Tuple> chunk = redisTemplate.execute((RedisCallback<Set<Tuple>>) connection ->
+                    connection.zSetCommands().zRangeWithScores(key, 0, MIGRATION_CHUNK - 1));
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            List<Payment> payments = new ArrayList<>(chunk.size());
+            for (Tuple tuple : chunk) {
+                Payment payment = legacyPayment(tuple);
+                if (payment != null) {
+                    payments.add(payment);
+                } else {
+                    invalid++;
+                }
+            }
+            saveAll(payments);
+            redisTemplate.execute((RedisCallback<Long>) connection ->
+                    connection.zSetCommands().zRem(key, chunk.stream().map(Tuple::getValue).toArray(byte[][]::new)));
+            migrated += payments.size();
+        }
+        redisTemplate.unlink(LEGACY_KEYS);
+        log.info("Migração do layout anterior concluída: {} pagamentos movidos, {} members inválidos descartados",
+                migrated, invalid);
+        return migrated;
+    }
+
+    @PreDestroy
+    public void close() {
+        if (writeBatcher != null) {
+            writeBatcher.close();
+        }
+        unlinker.shutdown();
+    }
+
+    byte[][] saveArgs(Payment payment) {
+        byte[] member = PaymentMemberCodec.encode(
+                payment.correlationId() != null ? payment.correlationId() : UUID.randomUUID(),
+                payment.amountCents(),
+                "fallback".equals(payment.processorUsed()));
+        long timestamp = payment.timestamp().toEpochMilli();
+        long window = Math.floorDiv(timestamp, windowWidthMs);
+        return new byte[][]{
+                member,
+                ascii(Long.toString(timestamp)),
+                ascii(payment.processorUsed()),
+                ascii(Long.toString(Math.floorDiv(timestamp, bucketWidthMs))),
+                ascii(Long.toString(payment.amountCents())),
+                ascii(Long.toString(payment.feeCents())),
+                ascii(Long.toString(window)),
+                ascii(Long.toString(window - dedupeWindows))
+        };
+    }
+
+    // Member do payments_zset antigo (binário ou "processor|amount|fee|usedFallback|uuid"); a taxa é
+    // recalculada a partir do valor, como no formato binário
+    private static Payment legacyPayment(Tuple tuple) {
+        byte[] member = tuple.getValue();
+        UUID correlationId;
+        long amount;
+        boolean fallback;
+        if (PaymentMemberCodec.isBinary(member)) {
+            long packed = PaymentMemberCodec.packedValue(member);
+            correlationId = PaymentMemberCodec.correlationId(member);
+            amount = PaymentMemberCodec.amountCents(packed);
+            fallback = PaymentMemberCodec.isFallback(packed);
+        } else {
+            String[] parts = new String(member, StandardCharsets.UTF_8).split("\\|");
+            if (parts.length < 5) return null;
+            try {
+                correlationId = UUID.fromString(parts[4]);
+                amount = Money.parseCents(parts[1]);
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+            fallback = !"default".equalsIgnoreCase(parts[0]);
+            if (amount < 0) return null;
+        }
+        ProcessorType processor = fallback ? ProcessorType.FALLBACK : ProcessorType.DEFAULT;
+        return new Payment(correlationId, processor.value, amount, Money.feeCents(amount, processor.feePercent),
+                Instant.ofEpochMilli(tuple.getScore().longValue()), fallback);
+    }
+
+    // Janelas inteiramente dentro de [min, max] entram pelos totais; as (até duas) janelas das bordas
+    // usam o plano de buckets: buckets inteiros dentro do trecho + bordas parciais lidas do ZSET
+    SummaryPlan plan(Long min, Long max) {
+        long firstWindow = (min != null) ? Math.floorDiv(min, windowWidthMs) : 0;
+        long lastWindow = (max != null) ? Math.floorDiv(max, windowWidthMs) : 0;
+        boolean leftPartial = min != null && min > firstWindow * windowWidthMs;
+        boolean rightPartial = max != null && max < (lastWindow + 1) * windowWidthMs - 1;
+
+        List<PartialWindow> partial = new ArrayList<>(2);
+        if (min != null && max != null && firstWindow == lastWindow) {
+            if (leftPartial || rightPartial) {
+                partial.add(partialWindow(firstWindow, min, max));
+                return new SummaryPlan("", "", partial);
+            }
+            return new SummaryPlan(Long.toString(firstWindow), Long.toString(firstWindow), partial);
+        }
+
+        if (leftPartial) {
+            partial.add(partialWindow(firstWindow, min, (firstWindow + 1) * windowWidthMs - 1));
+            firstWindow++;
+        }
+        if (rightPartial) {
+            partial.add(partialWindow(lastWindow, lastWindow * windowWidthMs, max));
+            lastWindow--;
+        }
+        if (min != null && max != null && firstWindow > lastWindow) {
+            return new SummaryPlan("", "", partial);
+        }
+        return new SummaryPlan(
+                (min != null) ? Long.toString(firstWindow) : "-inf",
+                (max != null) ? Long.toString(lastWindow) : "+inf",
+                partial);
+    }
+
+    // Buckets inteiramente dentro de [min, max]; as bordas parciais são lidas do ZSET
+    PartialWindow partialWindow(long window, long min, long max) {
+        long firstBucket = Math.floorDiv(min + bucketWidthMs - 1, bucketWidthMs);
+        long lastBucket = Math.floorDiv(max + 1, bucketWidthMs) - 1;
+
+        String[] ranges = {"", "", "", "", "", ""};
+        if (firstBucket > lastBucket) {
+            ranges[0] = Long.toString(min);
+            ranges[1] = Long.toString(max);
+        } else {
+            if (min < firstBucket * bucketWidthMs) {
+                ranges[0] = Long.toString(min);
+                ranges[1] = Long.toString(firstBucket * bucketWidthMs - 1);
+            }
+            ranges[2] = Long.toString(firstBucket);
+            ranges[3] = Long.toString(lastBucket);
+            if ((lastBucket + 1) * bucketWidthMs <= max) {
+                ranges[4] = Long.toString((lastBucket + 1) * bucketWidthMs);
+                ranges[5] = Long.toString(max);
+            }
+        }
+        return new PartialWindow(window, ranges);
     }
 
-    private BigDecimal safeBigDecimal(String s) {
+    // Envia o lote inteiro em um pipeline de EVALSHA. Reexecutar um lote é seguro: o ZADD NX
+    // do script descarta os pagamentos que já foram gravados.
+    private void flush(List<byte[][]> batch) {
+        List<byte[][]> calls = new ArrayList<>(batch.size());
+        byte[][] keys = new byte[SAVE_KEYS.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = SAVE_KEYS.get(i).getBytes(StandardCharsets.UTF_8);
+        }
+        for (byte[][] args : batch) {
+            byte[][] keysAndArgs = new byte[keys.length + 2 + args.length][];
+            System.arraycopy(keys, 0, keysAndArgs, 0, keys.length);
+            keysAndArgs[keys.length] = detailTtlArg;
+            keysAndArgs[keys.length + 1] = windowTtlArg;
+            System.arraycopy(args, 0, keysAndArgs, keys.length + 2, args.length);
+            calls.add(keysAndArgs);
+        }
         try {
-            return new BigDecimal(s);
+            executeSavePipeline(calls);
         } catch (Exception e) {
-            return BigDecimal.ZERO;
+            log.warn("Falha no pipeline de gravação ({} itens), recarregando script: {}", batch.size(), e.getMessage());
+            saveScriptSha = null;
+            executeSavePipeline(calls);
+        }
+    }
+
+    private void executeSavePipeline(List<byte[][]> calls) {
+        byte[] sha = saveScriptSha;
+        if (sha == null) {
+            sha = scriptLoad(SAVE_SCRIPT);
+            saveScriptSha = sha;
+        }
+        byte[] scriptSha = sha;
+        int numKeys = SAVE_KEYS.size();
+        redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (byte[][] keysAndArgs : calls) {
+                connection.scriptingCommands().evalSha(scriptSha, ReturnType.INTEGER, numKeys, keysAndArgs);
+            }
+            return null;
+        });
+    }
+
+    private byte[] scriptLoad(RedisScript<?> script) {
+        String loaded = redisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(script.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+        return loaded.getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Apaga as chaves de um epoch descartado pelo purge; UNLINK libera a memória fora da thread do Redis
+    private void unlinkEpoch(long epoch) {
+        try {
+            String ns = "payments:" + epoch + ":";
+            List<String> windows = windows(ns, "-inf", "+inf");
+            List<String> keys = new ArrayList<>(UNLINK_CHUNK);
+            for (String window : windows) {
+                keys.add(ns + "z:" + window);
+                keys.add(ns + "t:" + window);
+                keys.add(ns + "b:" + window);
+                keys.add(ns + "i:" + window);
+                if (keys.size() >= UNLINK_CHUNK) {
+                    redisTemplate.unlink(keys);
+                    keys.clear();
+                }
+            }
+            keys.add(ns + "windows");
+            keys.addAll(LEGACY_KEYS);
+            redisTemplate.unlink(keys);
+            log.info("Epoch {} descartado: {} janelas apagadas", epoch, windows.size());
+        } catch (Exception e) {
+            log.warn("Falha ao apagar chaves do epoch {}: {}", epoch, e.getMessage());
+        }
+    }
+
+    private String namespace() {
+        byte[] key = EPOCH_KEY.getBytes(StandardCharsets.UTF_8);
+        byte[] epoch = redisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+        return "payments:" + (epoch != null ? new String(epoch, StandardCharsets.US_ASCII) : "0") + ":";
+    }
+
+    private List<String> windows(String ns, String min, String max) {
+        byte[] key = (ns + "windows").getBytes(StandardCharsets.UTF_8);
+        Set<byte[]> windows = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+                connection.zSetCommands().zRangeByScore(key, toScore(min), toScore(max)));
+        if (windows == null) {
+            return List.of();
+        }
+        List<String> result = new ArrayList<>(windows.size());
+        for (byte[] window : windows) {
+            result.add(new String(window, StandardCharsets.US_ASCII));
+        }
+        return result;
+    }
+
+    private void mergeWindows(String ns, String min, String max, Totals totals) {
+        if (min.isEmpty()) {
+            return;
+        }
+        List<String> windows = windows(ns, min, max);
+        if (windows.isEmpty()) {
+            return;
+        }
+
+        List<Object> fields = new ArrayList<>(6);
+        for (String processor : PROCESSORS) {
+            fields.add(processor + ":c");
+            fields.add(processor + ":a");
+            fields.add(processor + ":f");
+        }
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            byte[][] rawFields = fields.stream().map(f -> ((String) f).getBytes(StandardCharsets.UTF_8)).toArray(byte[][]::new);
+            for (String window : windows) {
+                connection.hashCommands().hMGet((ns + "t:" + window).getBytes(StandardCharsets.UTF_8), rawFields);
+            }
+            return null;
+        });
+        for (Object result : results) {
+            if (result instanceof List<?> values) {
+                totals.addCounters(values);
+            }
+        }
+    }
+
+    // Janelas parciais que ainda têm totais mas cujo ZSET já expirou (members, buckets e índice expiram juntos)
+    private List<Long> lostDetail(String ns, List<PartialWindow> partial) {
+        if (partial.isEmpty()) {
+            return List.of();
+        }
+        List<Object> exists = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (PartialWindow p : partial) {
+                connection.keyCommands().exists((ns + "z:" + p.window()).getBytes(StandardCharsets.UTF_8));
+                connection.keyCommands().exists((ns + "t:" + p.window()).getBytes(StandardCharsets.UTF_8));
+            }
+            return null;
+        });
+        List<Long> lost = new ArrayList<>(2);
+        for (int i = 0; i < partial.size(); i++) {
+            if (!Boolean.TRUE.equals(exists.get(2 * i)) && Boolean.TRUE.equals(exists.get(2 * i + 1))) {
+                lost.add(partial.get(i).window());
+            }
+        }
+        return lost;
+    }
+
+    private void warnLostDetail(List<?> windows, Instant from, Instant to) {
+        log.warn("Detalhe expirado (payments.partition.detail-ttl-ms) nas janelas {} da borda do resumo [{}, {}]: "
+                + "usando os totais das janelas inteiras, que incluem pagamentos fora do intervalo", windows, from, to);
+    }
+
+    private void mergeBuckets(String ns, long window, String min, String max, Totals totals) {
+        if (min.isEmpty()) {
+            return;
+        }
+        Set<String> buckets = redisTemplate.opsForZSet().rangeByScore(ns + "i:" + window, toScore(min), toScore(max));
+        if (buckets == null || buckets.isEmpty()) {
+            return;
+        }
+
+        List<Object> fields = new ArrayList<>(buckets.size() * 6);
+        for (String bucket : buckets) {
+            for (String processor : PROCESSORS) {
+                String p = bucket + ":" + processor + ":";
+                fields.add(p + "c");
+                fields.add(p + "a");
+                fields.add(p + "f");
+            }
+        }
+
+        List<Object> values = redisTemplate.opsForHash().multiGet(ns + "b:" + window, fields);
+        for (int i = 0; i < values.size(); i += 6) {
+            totals.addCounters(values.subList(i, i + 6));
+        }
+    }
+
+    private void scanMembers(String key, String min, String max, Totals totals) {
+        if (!min.isEmpty()) {
+            scanMembers(key, toScore(min), toScore(max), totals);
+        }
+    }
+
+    private void scanMembers(String key, double min, double max, Totals totals) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        Set<byte[]> results = redisTemplate.execute((RedisCallback<Set<byte[]>>) connection ->
+                connection.zSetCommands().zRangeByScore(rawKey, min, max));
+
+        if (results == null) {
+            return;
+        }
+        for (byte[] r : results) {
+            if (!PaymentMemberCodec.isBinary(r)) {
+                continue;
+            }
+            long packed = PaymentMemberCodec.packedValue(r);
+            long amount = PaymentMemberCodec.amountCents(packed);
+            if (PaymentMemberCodec.isFallback(packed)) {
+                totals.fbRequests++;
+                totals.fbAmount += amount;
+                totals.fbFee += Money.feeCents(amount, ProcessorType.FALLBACK.feePercent);
+            } else {
+                totals.defRequests++;
+                totals.defAmount += amount;
+                totals.defFee += Money.feeCents(amount, ProcessorType.DEFAULT.feePercent);
+            }
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static String score(Long value, String infinity) {
+        return (value != null) ? Long.toString(value) : infinity;
+    }
+
+    private static double toScore(String s) {
+        return switch (s) {
+            case "-inf" -> Double.NEGATIVE_INFINITY;
+            case "+inf" -> Double.POSITIVE_INFINITY;
+            default -> Long.parseLong(s);
+        };
+    }
+
+    private static long safeLong(Object o) {
+        try {
+            return o != null ? Long.parseLong(o.toString()) : 0L;
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+    /** Janelas inteiras {@code fullMin..fullMax} ("" = nenhuma) e as janelas parciais das bordas. */
+    record SummaryPlan(String fullMin, String fullMax, List<PartialWindow> partial) {}
+
+    /** {@code ranges}: bordaEsq min/max, buckets min/max, bordaDir min/max ("" = trecho ausente). */
+    record PartialWindow(long window, String[] ranges) {}
+
+    private static final class Totals {
+        long defRequests, defAmount, defFee;
+        long fbRequests, fbAmount, fbFee;
+
+        void add(List<?> values) {
+            if (values == null || values.size() < 6) {
+                return;
+            }
+            defRequests += ((Number) values.get(0)).longValue();
+            defAmount += ((Number) values.get(1)).longValue();
+            defFee += ((Number) values.get(2)).longValue();
+            fbRequests += ((Number) values.get(3)).longValue();
+            fbAmount += ((Number) values.get(4)).longValue();
+            fbFee += ((Number) values.get(5)).longValue();
+        }
+
+        void add(Totals other) {
+            defRequests += other.defRequests;
+            defAmount += other.defAmount;
+            defFee += other.defFee;
+            fbRequests += other.fbRequests;
+            fbAmount += other.fbAmount;
+            fbFee += other.fbFee;
+        }
+
+        // Contagem, valor e taxa de default e fallback, como lidos dos hashes (texto ou bytes; null = 0)
+        void addCounters(List<?> values) {
+            defRequests += safeLong(values.get(0));
+            defAmount += safeLong(values.get(1));
+            defFee += safeLong(values.get(2));
+            fbRequests += safeLong(values.get(3));
+            fbAmount += safeLong(values.get(4));
+            fbFee += safeLong(values.get(5));
+        }
+
+        PaymentSummary toSummary() {
+            return new PaymentSummary(defAmount, defFee, defRequests, fbAmount, fbFee, fbRequests);
         }
     }
 }
@@ -0,0 +1,162 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessagesSummary;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ingestão compartilhada entre as instâncias ({@code payments.ingest.mode=stream}): Redis Stream
+ * {@code payments_stream} lido pelo consumer group {@code payments_workers}. Cada entrada tem um único
+ * campo {@code p} com {@code "<correlationId>|<centavos>"}; entradas confirmadas saem do stream
+ * ({@code XACK} + {@code XDEL}), então o tamanho do stream é o que ainda não foi processado.
+ */
+@Repository
+public class RedisPaymentStreamRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisPaymentStreamRepository.class);
+
+    private static final String STREAM_KEY = "payments_stream";
+    private static final String GROUP = "payments_workers";
+    private static final String FIELD = "p";
+
+    // XAUTOCLAIM (Redis >= 6.2) ainda não existe no RedisTemplate: roda no servidor e devolve achatado
+    // {próximo cursor, id1, payload1, id2, payload2, ...}. Entradas que já sumiram do stream (XDEL) mas
+    // continuam pendentes vêm sem campos e são confirmadas ali mesmo. O terceiro elemento do Redis 7
+    // (ids apagados) é ignorado.
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> AUTOCLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local r = redis.call('XAUTOCLAIM', KEYS[1], ARGV[1], ARGV[2], ARGV[3], ARGV[4], 'COUNT', ARGV[5]) " +
+            "local out = {r[1]} " +
+            "for _, e in ipairs(r[2]) do " +
+            "  local fields = e[2] " +
+            "  if not fields then redis.call('XACK', KEYS[1], ARGV[1], e[1]) " +
+            "  else for i = 1, #fields, 2 do " +
+            "    if fields[i] == 'p' then out[#out + 1] = e[1]; out[#out + 1] = fields[i + 1] end " +
+            "  end end " +
+            "end " +
+            "return out",
+            List.class);
+
+    // Confirma e remove do stream numa ida só
+    private static final RedisScript<Long> ACK_SCRIPT = new DefaultRedisScript<>(
+            "local n = redis.call('XACK', KEYS[1], ARGV[1], unpack(ARGV, 2)) " +
+            "redis.call('XDEL', KEYS[1], unpack(ARGV, 2)) " +
+            "return n",
+            Long.class);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisPaymentStreamRepository(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    /** Cria o stream e o consumer group, se ainda não existirem. */
+    public void ensureGroup() {
+        try {
+            redisTemplate.execute((RedisCallback<String>) connection -> connection.streamCommands()
+                    .xGroupCreate(STREAM_KEY.getBytes(StandardCharsets.UTF_8), GROUP, ReadOffset.from("0"), true));
+        } catch (DataAccessException e) {
+            // BUSYGROUP: o grupo já existe (outra instância criou)
+            if (!String.valueOf(e.getMostSpecificCause().getMessage()).contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    public void append(String entry) {
+        redisTemplate.opsForStream().add(STREAM_KEY, Map.of(FIELD, entry));
+    }
+
+    /**
+     * Lê até {@code count} entradas: novas ({@code >}) ou, com {@code pending}, as já entregues a este
+     * consumer e ainda não confirmadas. {@code blockMs > 0} bloqueia numa conexão dedicada do pool.
+     */
+    public List<StreamEntry> read(String consumer, int count, long blockMs, boolean pending) {
+        StreamReadOptions options = StreamReadOptions.empty().count(count);
+        if (blockMs > 0 && !pending) {
+            options = options.block(Duration.ofMillis(blockMs));
+        }
+        ReadOffset offset = pending ? ReadOffset.from("0") : ReadOffset.lastConsumed();
+        List<MapRecord<String, Object, Object>> records = redisTemplate.opsForStream()
+                .read(Consumer.from(GROUP, consumer), options, StreamOffset.create(STREAM_KEY, offset));
+        if (records == null || records.isEmpty()) {
+            return List.of();
+        }
+        List<StreamEntry> entries = new ArrayList<>(records.size());
+        for (MapRecord<String, Object, Object> record : records) {
+            Object payload = record.getValue().get(FIELD);
+            entries.add(new StreamEntry(record.getId().getValue(), payload != null ? payload.toString() : null));
+        }
+        return entries;
+    }
+
+    /**
+     * Transfere para {@code consumer} até {@code count} entradas pendentes há mais de {@code minIdleMs}
+     * (consumer que morreu ou travou), varrendo o PEL a partir de {@code cursor}.
+     */
+    @SuppressWarnings("unchecked")
+    public ClaimResult autoClaim(String consumer, long minIdleMs, String cursor, int count) {
+        List<String> raw = redisTemplate.execute(AUTOCLAIM_SCRIPT, List.of(STREAM_KEY),
+                GROUP, consumer, Long.toString(minIdleMs), cursor, Integer.toString(count));
+        if (raw == null || raw.isEmpty()) {
+            return new ClaimResult("0-0", List.of());
+        }
+        List<StreamEntry> entries = new ArrayList<>(raw.size() / 2);
+        for (int i = 1; i + 1 < raw.size(); i += 2) {
+            entries.add(new StreamEntry(raw.get(i), raw.get(i + 1)));
+        }
+        return new ClaimResult(raw.get(0), entries);
+    }
+
+    public void ack(List<String> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<String> args = new ArrayList<>(ids.size() + 1);
+        args.add(GROUP);
+        args.addAll(ids);
+        redisTemplate.execute(ACK_SCRIPT, List.of(STREAM_KEY), args.toArray());
+    }
+
+    public long size() {
+        Long size = redisTemplate.opsForStream().size(STREAM_KEY);
+        return size != null ? size : 0L;
+    }
+
+    /** Entradas entregues a algum consumer e ainda não confirmadas. */
+    public long pending() {
+        PendingMessagesSummary summary = redisTemplate.opsForStream().pending(STREAM_KEY, GROUP);
+        return summary != null ? summary.getTotalPendingMessages() : 0L;
+    }
+
+    public void purge() {
+        try {
+            redisTemplate.delete(STREAM_KEY);
+            ensureGroup();
+        } catch (Exception e) {
+            log.error("Erro ao limpar stream de pagamentos: {}", e.getMessage(), e);
+        }
+    }
+
+    /** {@code payload} é null se a entrada não tem o campo esperado. */
+    public record StreamEntry(String id, String payload) {}
+
+    public record ClaimResult(String nextCursor, List<StreamEntry> entries) {}
+}
@@ -0,0 +1,86 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Fila de retentativas compartilhada entre as instâncias:
+ * <ul>
+ *   <li>{@code payments_retry}: ZSET com score igual ao instante (epoch millis) da próxima tentativa;</li>
+ *   <li>{@code payments_retry_inflight}: itens já retirados por alguma instância, com score igual ao fim
+ *   do lease. Saem com {@link #ack} quando a tentativa termina; se a instância morrer no meio, o lease
+ *   vence e o próximo {@link #claimDue} (de qualquer instância) os retira de novo.</li>
+ * </ul>
+ * Cada item é entregue pelo menos uma vez; uma entrega repetida é inofensiva (422 de retentativa conta
+ * como aceito e a gravação descarta o pagamento já gravado).
+ */
+@Repository
+public class RedisRetryRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(RedisRetryRepository.class);
+
+    private static final String RETRY_KEY = "payments_retry";
+    private static final String INFLIGHT_KEY = "payments_retry_inflight";
+
+    // Retira atomicamente até ARGV[2] itens: primeiro os de lease vencido em KEYS[2], depois os vencidos
+    // (score <= ARGV[1]) em KEYS[1]. Todos ficam em KEYS[2] com lease até ARGV[1] + ARGV[3]
+    @SuppressWarnings("rawtypes")
+    private static final RedisScript<List> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local now, limit = tonumber(ARGV[1]), tonumber(ARGV[2]) " +
+            "local leaseUntil = now + tonumber(ARGV[3]) " +
+            "local claimed = redis.call('ZRANGEBYSCORE', KEYS[2], '-inf', now, 'LIMIT', 0, limit) " +
+            "if #claimed < limit then " +
+            "  local due = redis.call('ZRANGEBYSCORE', KEYS[1], '-inf', now, 'LIMIT', 0, limit - #claimed) " +
+            "  if #due > 0 then redis.call('ZREM', KEYS[1], unpack(due)) end " +
+            "  for _, e in ipairs(due) do claimed[#claimed + 1] = e end " +
+            "end " +
+            "for _, e in ipairs(claimed) do redis.call('ZADD', KEYS[2], leaseUntil, e) end " +
+            "return claimed",
+            List.class);
+
+    private static final List<String> CLAIM_KEYS = List.of(RETRY_KEY, INFLIGHT_KEY);
+
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisRetryRepository(RedisTemplate<String, String> redisTemplate) {
+        this.redisTemplate = redisTemplate;
+    }
+
+    public void schedule(String entry, long dueAtMillis) {
+        redisTemplate.opsForZSet().add(RETRY_KEY, entry, dueAtMillis);
+    }
+
+    /** Retira até {@code limit} itens vencidos ou de lease vencido, com lease de {@code leaseMs} para esta instância. */
+    @SuppressWarnings("unchecked")
+    public List<String> claimDue(long nowMillis, int limit, long leaseMs) {
+        List<String> due = redisTemplate.execute(CLAIM_SCRIPT, CLAIM_KEYS,
+                Long.toString(nowMillis), Integer.toString(limit), Long.toString(leaseMs));
+        return due != null ? due : List.of();
+    }
+
+    /** Tentativa do item terminada (gravado, descartado ou reagendado como outro item): encerra o lease. */
+    public void ack(String entry) {
+        redisTemplate.opsForZSet().remove(INFLIGHT_KEY, entry);
+    }
+
+    /** Itens aguardando, incluindo os que estão com alguma instância. */
+    public long size() {
+        Long waiting = redisTemplate.opsForZSet().zCard(RETRY_KEY);
+        Long inFlight = redisTemplate.opsForZSet().zCard(INFLIGHT_KEY);
+        return (waiting != null ? waiting : 0L) + (inFlight != null ? inFlight : 0L);
+    }
+
+    public void purge() {
+        try {
+            redisTemplate.unlink(CLAIM_KEYS);
+        } catch (Exception e) {
+            log.error("Erro ao limpar fila de retentativas: {}", e.getMessage(), e);
+        }
+    }
+}
@@ -1,71 +1,174 @@
 package scaputo88.com.example.rinha_25.service;
 
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import scaputo88.com.example.rinha_25.configuration.Env;
 import scaputo88.com.example.rinha_25.model.ProcessorType;
+import scaputo88.com.example.rinha_25.repository.RedisHealthRepository;
 
-import java.time.Instant;
 import java.util.Map;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Saúde dos processors, consultada em segundo plano e compartilhada entre as instâncias.
+ * <p>
+ * A cada {@code HEALTH_POLL_MS} a thread {@code pay-health} lê o último resultado publicado no Redis
+ * ({@link RedisHealthRepository}). Se ele tem mais que o TTL, tenta o lease do processor: só quem o obtém
+ * chama {@code /payments/service-health} e publica o resultado. Assim as instâncias juntas fazem no máximo
+ * uma chamada por TTL, o limite do endpoint. Sem Redis, cada instância volta a consultar por conta própria.
+ * {@link #getStatus} só lê o cache local e nunca bloqueia.
+ */
 @Service
 public class HealthCheckService {
 
-    private static final int BASE_TTL_SEC = 2;
+    private static final Logger log = LoggerFactory.getLogger(HealthCheckService.class);
+
+    // O endpoint /payments/service-health dos processors aceita 1 chamada a cada 5s
+    private static final int BASE_TTL_SEC = 5;
     private static final int MAX_TTL_SEC = 10;
+    // Folga do lease sobre o TTL, para relógios e latências diferentes não estourarem o limite
+    private static final long LEASE_MARGIN_MS = 250;
+
+    // Antes do primeiro resultado: assume saudável (o ProcessorCircuitBreaker cobre o processor que estiver fora)
+    private static final ProcessorClient.HealthStatus UNKNOWN = new ProcessorClient.HealthStatus(true, 0);
 
     private final ProcessorClient processorClient;
+    private final ProcessorCircuitBreaker breaker;
+    private final RedisHealthRepository healthRepository;
+    private final String instanceId = UUID.randomUUID().toString();
+    private final ScheduledExecutorService prober;
 
-    private final Map<ProcessorType, ProcessorClient.HealthStatus> cache = new ConcurrentHashMap<>();
-    private final Map<ProcessorType, Instant> lastCheck = new ConcurrentHashMap<>();
+    private final Map<ProcessorType, Snapshot> cache = new ConcurrentHashMap<>();
     private final Map<ProcessorType, AtomicInteger> failStreaks = new ConcurrentHashMap<>();
     private final Map<ProcessorType, AtomicInteger> currentTtls = new ConcurrentHashMap<>();
-    private final Map<ProcessorType, ReentrantLock> locks = new ConcurrentHashMap<>();
 
-    public HealthCheckService(ProcessorClient processorClient) {
+    private record Snapshot(ProcessorClient.HealthStatus status, long checkedAtMillis) {
+    }
+
+    public HealthCheckService(ProcessorClient processorClient, ProcessorCircuitBreaker breaker,
+                              RedisHealthRepository healthRepository) {
         this.processorClient = processorClient;
+        this.breaker = breaker;
+        this.healthRepository = healthRepository;
         for (ProcessorType type : ProcessorType.values()) {
             failStreaks.put(type, new AtomicInteger(0));
             currentTtls.put(type, new AtomicInteger(BASE_TTL_SEC));
-            locks.put(type, new ReentrantLock());
         }
+
+        long pollMs = Env.integer("HEALTH_POLL_MS", 1000);
+        this.prober = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pay-health");
+            t.setDaemon(true);
+            return t;
+        });
+        this.prober.scheduleWithFixedDelay(this::refresh, 0, pollMs, TimeUnit.MILLISECONDS);
+        log.info("HealthCheckService inicializado: pollMs={}, instance={}", pollMs, instanceId);
     }
 
     public ProcessorClient.HealthStatus getStatus(ProcessorType type) {
-        Instant now = Instant.now();
-        int ttl = currentTtls.get(type).get();
-        Instant last = lastCheck.get(type);
+        Snapshot snapshot = cache.get(type);
+        return snapshot != null ? snapshot.status() : UNKNOWN;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        prober.shutdownNow();
+    }
 
-        if (last != null && !now.minusSeconds(ttl).isAfter(last)) {
-            return cache.getOrDefault(type, new ProcessorClient.HealthStatus(false, Integer.MAX_VALUE));
+    private void refresh() {
+        for (ProcessorType type : ProcessorType.values()) {
+            try {
+                refresh(type);
+            } catch (Exception e) {
+                log.warn("Falha ao atualizar saúde de {}: {}", type.getValue(), e.getMessage());
+            }
         }
+    }
+
+    private void refresh(ProcessorType type) {
+        long now = System.currentTimeMillis();
+        long ttlMs = TimeUnit.SECONDS.toMillis(currentTtls.get(type).get());
+        Snapshot local = cache.get(type);
 
-        ReentrantLock lock = locks.get(type);
-        if (!lock.tryLock()) {
-            return cache.getOrDefault(type, new ProcessorClient.HealthStatus(false, Integer.MAX_VALUE));
+        boolean leased;
+        try {
+            Snapshot shared = decode(healthRepository.read(type.getValue()));
+            if (shared != null && (local == null || shared.checkedAtMillis() > local.checkedAtMillis())) {
+                apply(type, shared);
+                local = shared;
+            }
+            if (local != null && now - local.checkedAtMillis() < ttlMs) {
+                return;
+            }
+            leased = healthRepository.tryLease(type.getValue(), instanceId, ttlMs + LEASE_MARGIN_MS);
+        } catch (Exception e) {
+            log.debug("Redis indisponível para o health check de {}: {}", type.getValue(), e.getMessage());
+            if (local != null && now - local.checkedAtMillis() < ttlMs) {
+                return;
+            }
+            apply(type, probe(type));
+            return;
         }
+        if (!leased) {
+            // Outra instância está consultando; o resultado chega pelo Redis na próxima rodada
+            return;
+        }
+
+        Snapshot fresh = probe(type);
+        apply(type, fresh);
         try {
-            Instant last2 = lastCheck.get(type);
-            int ttl2 = currentTtls.get(type).get();
-            if (last2 == null || now.minusSeconds(ttl2).isAfter(last2)) {
-                ProcessorClient.HealthStatus status = processorClient.checkHealth(type.getValue());
-                cache.put(type, status);
-                lastCheck.put(type, now);
-
-                if (status.healthy()) {
-                    failStreaks.get(type).set(0);
-                    currentTtls.get(type).set(BASE_TTL_SEC);
-                } else {
-                    int streak = failStreaks.get(type).incrementAndGet();
-                    if (streak >= 3) {
-                        currentTtls.get(type).set(MAX_TTL_SEC);
-                    }
-                }
+            healthRepository.publish(type.getValue(), encode(fresh));
+        } catch (Exception e) {
+            log.warn("Falha ao publicar saúde de {}: {}", type.getValue(), e.getMessage());
+        }
+    }
+
+    private Snapshot probe(ProcessorType type) {
+        return new Snapshot(processorClient.checkHealth(type.getValue()), System.currentTimeMillis());
+    }
+
+    private void apply(ProcessorType type, Snapshot snapshot) {
+        Snapshot previous = cache.put(type, snapshot);
+        breaker.onHealth(type, snapshot.status());
+
+        if (snapshot.status().healthy()) {
+            failStreaks.get(type).set(0);
+            currentTtls.get(type).set(BASE_TTL_SEC);
+        } else {
+            int streak = failStreaks.get(type).incrementAndGet();
+            if (streak >= 3) {
+                currentTtls.get(type).set(MAX_TTL_SEC);
             }
-            return cache.getOrDefault(type, new ProcessorClient.HealthStatus(false, Integer.MAX_VALUE));
-        } finally {
-            lock.unlock();
+        }
+        if (previous == null || previous.status().healthy() != snapshot.status().healthy()) {
+            log.info("Processor {} {} (minResponseTime={}ms)", type.getValue(),
+                    snapshot.status().healthy() ? "saudável" : "falhando", snapshot.status().minResponseTime());
+        }
+    }
+
+    // "<1 saudável | 0 falhando>|<minResponseTime>|<checkedAt epoch millis>"
+    private static String encode(Snapshot snapshot) {
+        return (snapshot.status().healthy() ? "1|" : "0|") + snapshot.status().minResponseTime() + "|" + snapshot.checkedAtMillis();
+    }
+
+    private static Snapshot decode(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            String[] parts = value.split("\\|");
+            return new Snapshot(new ProcessorClient.HealthStatus("1".equals(parts[0]), Integer.parseInt(parts[1])),
+                    Long.parseLong(parts[2]));
+        } catch (RuntimeException e) {
+            log.warn("Saúde publicada inválida: {}", value);
+            return null;
         }
     }
 }
@@ -0,0 +1,290 @@
+package scaputo88.com.example.rinha_25.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import scaputo88.com.example.rinha_25.configuration.Env;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+import scaputo88.com.example.rinha_25.service.ProcessorClient.Outcome;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Cliente sobre o {@link HttpClient} do JDK: HTTP/1.1 com keep-alive, um client por processor e
+ * envio com {@code sendAsync}. O {@link ProcessorConcurrencyLimiter} fica na frente do {@code sendAsync} e a
+ * vaga só é devolvida quando a resposta chega, então o limite por processor ({@code PP_MAX_CONCURRENCY}) é o
+ * número de conexões abertas para ele (uma requisição por conexão no HTTP/1.1). As flags
+ * {@code jdk.httpclient.connectionPoolSize} e {@code jdk.httpclient.keepalive.timeout} da JVM
+ * ({@code JAVA_OPTS} no Dockerfile) só dimensionam o pool ocioso, que é global. O corpo do POST é
+ * montado direto num {@code byte[]} pré-dimensionado, sem Jackson nem {@code BigDecimal}.
+ */
+@Component
+@ConditionalOnProperty(name = "pp.client", havingValue = "http")
+public class HttpClientProcessorClient implements ProcessorClient {
+
+    private static final Logger log = LoggerFactory.getLogger(HttpClientProcessorClient.class);
+
+    private static final byte[] BODY_PREFIX = "{\"correlationId\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_AMOUNT = "\",\"amount\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_REQUESTED_AT = ",\"requestedAt\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_SUFFIX = "\"}".getBytes(StandardCharsets.US_ASCII);
+    // 36 do UUID + 21 do valor (19 dígitos, ponto e sinal) + 35 do Instant com nanos
+    private static final int BODY_CAPACITY =
+            BODY_PREFIX.length + 36 + BODY_AMOUNT.length + 21 + BODY_REQUESTED_AT.length + 35 + BODY_SUFFIX.length;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final Map<ProcessorType, HttpClient> clients = new EnumMap<>(ProcessorType.class);
+    private final Map<ProcessorType, URI> paymentUris = new EnumMap<>(ProcessorType.class);
+    private final Map<ProcessorType, String> baseUrls = new EnumMap<>(ProcessorType.class);
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Duration timeout;
+    private final String adminToken;
+    private final ProcessorConcurrencyLimiter limiter;
+    private final PaymentMetrics metrics;
+    private final ProcessorCircuitBreaker breaker;
+
+    // URLs via placeholder: a variável de ambiente continua valendo, e propriedades de linha de comando
+    // (ex.: harness de carga) também
+    public HttpClientProcessorClient(ProcessorConcurrencyLimiter limiter,
+                                     PaymentMetrics metrics,
+                                     ProcessorCircuitBreaker breaker,
+                                     @Value("${PAYMENT_PROCESSOR_URL_DEFAULT:http://payment-processor-default:8080}") String defaultBaseUrl,
+                                     @Value("${PAYMENT_PROCESSOR_URL_FALLBACK:http://payment-processor-fallback:8080}") String fallbackBaseUrl) {
+        this.limiter = limiter;
+        this.metrics = metrics;
+        this.breaker = breaker;
+        int timeoutMs = Env.integer("PP_TIMEOUT_MS", 250);
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.adminToken = Env.string("PP_ADMIN_TOKEN", "123");
+
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        baseUrls.put(ProcessorType.DEFAULT, defaultBaseUrl.trim());
+        baseUrls.put(ProcessorType.FALLBACK, fallbackBaseUrl.trim());
+        for (ProcessorType type : ProcessorType.values()) {
+            clients.put(type, HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(timeout)
+                    .executor(executor)
+                    .build());
+            paymentUris.put(type, URI.create(baseUrls.get(type) + "/payments"));
+        }
+
+        log.info("HttpClientProcessorClient inicializado: defaultBaseUrl={}, fallbackBaseUrl={}, timeout={}ms, "
+                        + "connectionPoolSize={}, keepaliveSec={}",
+                baseUrls.get(ProcessorType.DEFAULT), baseUrls.get(ProcessorType.FALLBACK), timeoutMs,
+                System.getProperty("jdk.httpclient.connectionPoolSize", "0"),
+                System.getProperty("jdk.httpclient.keepalive.timeout", "30"));
+    }
+
+    private static ProcessorType type(String processor) {
+        return "fallback".equalsIgnoreCase(processor) ? ProcessorType.FALLBACK : ProcessorType.DEFAULT;
+    }
+
+    @Override
+    public Outcome sendPayment(String processor, UUID correlationId, long amountCents, Instant requestedAt) {
+        ProcessorType type = type(processor);
+        if (!limiter.acquire(type)) {
+            metrics.processorLimited(type);
+            log.warn("Limite de conexões para {} atingido", processor);
+            return Outcome.FAILURE;
+        }
+        CompletableFuture<Outcome> result;
+        try {
+            result = sendAsync(type, correlationId, amountCents, requestedAt);
+        } catch (RuntimeException e) {
+            limiter.release(type);
+            throw e;
+        }
+        return result.join();
+    }
+
+    // A vaga do limiter é devolvida na conclusão do envio, não quando o worker volta do join
+    private CompletableFuture<Outcome> sendAsync(ProcessorType type, UUID correlationId, long amountCents,
+                                                 Instant requestedAt) {
+        byte[] body = new byte[BODY_CAPACITY];
+        int len = writeBody(body, correlationId, amountCents, requestedAt);
+        int timeoutMs = breaker.timeoutMs(type);
+        HttpRequest request = HttpRequest.newBuilder(paymentUris.get(type))
+                .timeout(Duration.ofMillis(timeoutMs))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(body, 0, len))
+                .build();
+        long start = System.nanoTime();
+        return clients.get(type).sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .handle((response, error) -> {
+                    try {
+                        Outcome outcome = error == null ? outcomeOf(response.statusCode()) : outcomeOf(type, error);
+                        long elapsed = System.nanoTime() - start;
+                        metrics.recordProcessorCall(type, outcome, elapsed);
+                        breaker.onResult(type, outcome, elapsed);
+                        return outcome;
+                    } finally {
+                        limiter.release(type);
+                    }
+                });
+    }
+
+    private static Outcome outcomeOf(int status) {
+        if (status >= 200 && status < 300) {
+            return Outcome.SUCCESS;
+        }
+        return status >= 400 && status < 500 ? Outcome.REJECTED : Outcome.FAILURE;
+    }
+
+    private static Outcome outcomeOf(ProcessorType type, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        log.warn("Falha ao enviar pagamento para {}: {}", type.getValue(), cause.toString());
+        if (cause instanceof HttpConnectTimeoutException) {
+            // A conexão nem abriu: o pagamento não saiu daqui, pode ir para o outro processor
+            return Outcome.FAILURE;
+        }
+        return cause instanceof HttpTimeoutException ? Outcome.TIMEOUT : Outcome.FAILURE;
+    }
+
+    static int writeBody(byte[] buf, UUID correlationId, long amountCents, Instant requestedAt) {
+        int pos = put(buf, 0, BODY_PREFIX);
+        pos = writeUuid(buf, pos, correlationId);
+        pos = put(buf, pos, BODY_AMOUNT);
+        pos = writeAmount(buf, pos, amountCents);
+        pos = put(buf, pos, BODY_REQUESTED_AT);
+        String ts = requestedAt.toString();
+        for (int i = 0; i < ts.length(); i++) {
+            buf[pos++] = (byte) ts.charAt(i);
+        }
+        return put(buf, pos, BODY_SUFFIX);
+    }
+
+    private static int put(byte[] buf, int pos, byte[] src) {
+        System.arraycopy(src, 0, buf, pos, src.length);
+        return pos + src.length;
+    }
+
+    private static int writeUuid(byte[] buf, int pos, UUID id) {
+        pos = writeHex(buf, pos, id.getMostSignificantBits() >>> 32, 8);
+        buf[pos++] = '-';
+        pos = writeHex(buf, pos, id.getMostSignificantBits() >>> 16, 4);
+        buf[pos++] = '-';
+        pos = writeHex(buf, pos, id.getMostSignificantBits(), 4);
+        buf[pos++] = '-';
+        pos = writeHex(buf, pos, id.getLeastSignificantBits() >>> 48, 4);
+        buf[pos++] = '-';
+        return writeHex(buf, pos, id.getLeastSignificantBits(), 12);
+    }
+
+    private static int writeHex(byte[] buf, int pos, long v, int digits) {
+        for (int i = digits - 1; i >= 0; i--) {
+            buf[pos + i] = HEX[(int) (v & 0xF)];
+            v >>>= 4;
+        }
+        return pos + digits;
+    }
+
+    // Mesmo formato de Money.toBigDecimal(cents).toPlainString(): sempre duas casas
+    private static int writeAmount(byte[] buf, int pos, long cents) {
+        if (cents < 0) {
+            buf[pos++] = '-';
+            cents = -cents;
+        }
+        long units = cents / 100;
+        int frac = (int) (cents % 100);
+        int start = pos;
+        do {
+            buf[pos++] = (byte) ('0' + units % 10);
+            units /= 10;
+        } while (units != 0);
+        for (int i = start, j = pos - 1; i < j; i++, j--) {
+            byte tmp = buf[i];
+            buf[i] = buf[j];
+            buf[j] = tmp;
+        }
+        buf[pos++] = '.';
+        buf[pos++] = (byte) ('0' + frac / 10);
+        buf[pos++] = (byte) ('0' + frac % 10);
+        return pos;
+    }
+
+    @Override
+    public HealthStatus checkHealth(String processor) {
+        ProcessorType type = type(processor);
+        try {
+            JsonNode body = getJson(type, baseUrls.get(type) + "/payments/service-health", null);
+            if (body != null) {
+                boolean failing = body.path("failing").asBoolean(false);
+                int minResponseTime = body.hasNonNull("minResponseTime")
+                        ? body.get("minResponseTime").asInt()
+                        : Integer.MAX_VALUE;
+                return new HealthStatus(!failing, minResponseTime);
+            }
+        } catch (Exception e) {
+            log.warn("Falha ao consultar saúde de {}: {}", processor, e.toString());
+        }
+        return new HealthStatus(false, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public AdminSummary getAdminSummary(String processor, String from, String to) {
+        ProcessorType type = type(processor);
+        StringBuilder uri = new StringBuilder(baseUrls.get(type)).append("/admin/payments-summary");
+        boolean hasQuery = false;
+        if (from != null && !from.isBlank()) {
+            uri.append("?from=").append(from);
+            hasQuery = true;
+        }
+        if (to != null && !to.isBlank()) {
+            uri.append(hasQuery ? "&" : "?").append("to=").append(to);
+        }
+
+        try {
+            JsonNode body = getJson(type, uri.toString(), adminToken);
+            if (body != null) {
+                long totalRequests = body.path("totalRequests").asLong(0L);
+                BigDecimal totalAmount = body.hasNonNull("totalAmount")
+                        ? new BigDecimal(body.get("totalAmount").asText())
+                        : BigDecimal.ZERO;
+                return new AdminSummary(totalRequests, totalAmount);
+            }
+        } catch (Exception e) {
+            log.warn("Falha ao obter resumo admin de {}: {}", processor, e.toString());
+        }
+        return new AdminSummary(0L, BigDecimal.ZERO);
+    }
+
+    private JsonNode getJson(ProcessorType type, String url, String token) throws Exception {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url)).timeout(timeout).GET();
+        if (token != null) {
+            builder.header("X-Rinha-Token", token);
+        }
+        HttpResponse<byte[]> resp = clients.get(type).send(builder.build(), HttpResponse.BodyHandlers.ofByteArray());
+        if (resp.statusCode() < 200 || resp.statusCode() >= 300 || resp.body().length == 0) {
+            return null;
+        }
+        return objectMapper.readTree(resp.body());
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,81 @@
+package scaputo88.com.example.rinha_25.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import scaputo88.com.example.rinha_25.configuration.Env;
+import scaputo88.com.example.rinha_25.repository.RedisDedupeRepository;
+
+import java.util.UUID;
+
+/**
+ * Barra correlationIds repetidos antes de qualquer chamada a processor (que já cobraria a taxa).
+ * Duas camadas:
+ * <ul>
+ *   <li>{@link #accept}: conjunto local em memória ({@link UuidSet}, limitado a
+ *   {@code DEDUPE_CAPACITY} ids), consultado no thread da requisição;</li>
+ *   <li>{@link #claim}: claim no Redis (desligado por padrão; {@code DEDUPE_REDIS_CLAIM=true} liga),
+ *   feito pelo worker antes do envio, para duplicatas que caíram em instâncias diferentes ou que o
+ *   conjunto local já esqueceu. Sem ele, uma duplicata dessas chega ao processor, que responde
+ *   {@code 422} na primeira tentativa, e o ZADD NX da gravação não a conta duas vezes.</li>
+ * </ul>
+ * Pagamentos que não serão processados (fila cheia, retentativas esgotadas) são liberados para
+ * que o cliente possa reenviar.
+ */
+@Component
+public class PaymentDeduplicator {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentDeduplicator.class);
+
+    private final UuidSet seen;
+    private final RedisDedupeRepository dedupeRepository;
+    private final boolean redisClaim;
+
+    public PaymentDeduplicator(RedisDedupeRepository dedupeRepository) {
+        this.dedupeRepository = dedupeRepository;
+        this.redisClaim = Env.flag("DEDUPE_REDIS_CLAIM", false);
+        this.seen = new UuidSet(Env.integer("DEDUPE_CAPACITY", 65_536));
+        log.info("PaymentDeduplicator inicializado: capacity={}, redisClaim={}", seen.capacity(), redisClaim);
+    }
+
+    /** @return false se o correlationId já foi aceito por esta instância */
+    public boolean accept(UUID correlationId) {
+        return seen.add(correlationId);
+    }
+
+    /**
+     * @return false se outra instância já reivindicou o correlationId. Com o Redis fora, deixa passar:
+     * o ZADD NX da gravação continua evitando contar o pagamento duas vezes.
+     */
+    public boolean claim(UUID correlationId) {
+        if (!redisClaim) {
+            return true;
+        }
+        try {
+            return dedupeRepository.claim(correlationId);
+        } catch (Exception e) {
+            log.warn("Falha no claim do pagamento {} no Redis: {}", correlationId, e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Esquece o correlationId. {@code claimed} indica se o {@link #claim} no Redis já foi feito por
+     * esta instância; sem ele não se mexe no Redis, que pode ter o claim de outra instância.
+     */
+    public void release(UUID correlationId, boolean claimed) {
+        seen.remove(correlationId);
+        if (claimed && redisClaim) {
+            try {
+                dedupeRepository.release(correlationId);
+            } catch (Exception e) {
+                log.warn("Falha ao liberar pagamento {} no Redis: {}", correlationId, e.getMessage());
+            }
+        }
+    }
+
+    public void purge() {
+        seen.clear();
+        dedupeRepository.purge();
+    }
+}
@@ -0,0 +1,111 @@
+package scaputo88.com.example.rinha_25.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+import scaputo88.com.example.rinha_25.service.ProcessorClient.Outcome;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Métricas do caminho quente, exportadas em {@code /actuator/prometheus}.
+ * <p>
+ * Todos os medidores são registrados no construtor e guardados em campos/arrays: gravar é só
+ * {@code Timer.record}/{@code Counter.increment}, sem busca por nome/tags no registry. Os timers publicam
+ * histograma de buckets fixos (contadores atômicos, sem lock; percentis calculados no Prometheus com
+ * {@code histogram_quantile}) e não percentis no cliente, que exigem sincronização na rotação das janelas.
+ */
+@Component
+public class PaymentMetrics {
+
+    private static final Duration MIN_EXPECTED = Duration.ofNanos(50_000);
+    private static final Duration MAX_EXPECTED = Duration.ofSeconds(5);
+
+    // [ProcessorType.ordinal()][Outcome.ordinal()]
+    private final Timer[][] processorCalls;
+    private final Counter[] processorLimited;
+    private final Timer repositorySave;
+    private final Timer repositorySummary;
+    private final Timer queueWait;
+    private final Counter fallbacks;
+    private final Counter dropped;
+    private final Counter peerDegraded;
+
+    public PaymentMetrics(MeterRegistry registry) {
+        ProcessorType[] types = ProcessorType.values();
+        Outcome[] outcomes = Outcome.values();
+        this.processorCalls = new Timer[types.length][outcomes.length];
+        this.processorLimited = new Counter[types.length];
+        for (ProcessorType type : types) {
+            for (Outcome outcome : outcomes) {
+                processorCalls[type.ordinal()][outcome.ordinal()] = timer("payments.processor.requests",
+                        "Chamadas POST /payments aos processors", registry,
+                        "processor", type.value, "outcome", outcome.name().toLowerCase(Locale.ROOT));
+            }
+            processorLimited[type.ordinal()] = Counter.builder("payments.processor.limited")
+                    .description("Chamadas não feitas por limite de concorrência do processor")
+                    .tag("processor", type.value)
+                    .register(registry);
+        }
+        this.repositorySave = timer("payments.repository.latency", "Operações no repositório de pagamentos", registry,
+                "operation", "save");
+        this.repositorySummary = timer("payments.repository.latency", "Operações no repositório de pagamentos", registry,
+                "operation", "summary");
+        this.queueWait = timer("payments.queue.wait", "Espera entre enfileirar e um worker iniciar o pagamento", registry);
+        this.fallbacks = Counter.builder("payments.fallback")
+                .description("Pagamentos gravados como processados pelo fallback")
+                .register(registry);
+        this.dropped = Counter.builder("payments.dropped")
+                .description("Pagamentos descartados sem retentativa possível ou aceitos e não gravados")
+                .register(registry);
+        this.peerDegraded = Counter.builder("payments.summary.peer.degraded")
+                .description("Resumos respondidos sem a parcial da outra instância")
+                .register(registry);
+    }
+
+    private static Timer timer(String name, String description, MeterRegistry registry, String... tags) {
+        return Timer.builder(name)
+                .description(description)
+                .tags(tags)
+                .publishPercentileHistogram()
+                .minimumExpectedValue(MIN_EXPECTED)
+                .maximumExpectedValue(MAX_EXPECTED)
+                .register(registry);
+    }
+
+    public void recordProcessorCall(ProcessorType type, Outcome outcome, long elapsedNanos) {
+        processorCalls[type.ordinal()][outcome.ordinal()].record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void processorLimited(ProcessorType type) {
+        processorLimited[type.ordinal()].increment();
+    }
+
+    public void recordSave(long startNanos) {
+        repositorySave.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSummary(long startNanos) {
+        repositorySummary.record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordQueueWait(long enqueuedAtNanos) {
+        queueWait.record(System.nanoTime() - enqueuedAtNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void fallbackUsed() {
+        fallbacks.increment();
+    }
+
+    public void paymentDropped() {
+        dropped.increment();
+    }
+
+    public void peerSummaryDegraded() {
+        peerDegraded.increment();
+    }
+}
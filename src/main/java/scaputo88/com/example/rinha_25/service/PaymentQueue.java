@@ -4,10 +4,12 @@ package scaputo88.com.example.rinha_25.service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import scaputo88.com.example.rinha_25.configuration.Env;
 
 import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 @Component
 public class PaymentQueue implements AutoCloseable {
@@ -16,11 +18,32 @@ public class PaymentQueue implements AutoCloseable {
 
     private final ThreadPoolExecutor executor;
     private final int offerTimeoutMs;
+    private final int queueCapacity;
+    private final AtomicLong rejected = new AtomicLong();
+
+    // EXECUTION_MODE=virtual: uma virtual thread por pagamento, limitada por VIRTUAL_MAX_IN_FLIGHT
+    private final ExecutorService virtualExecutor;
+    private final Semaphore virtualPermits;
+    private final int virtualMaxInFlight;
 
     public PaymentQueue() {
-        int workers = getEnvIntSafe("WORKERS", 32);
-        int queueCapacity = getEnvIntSafe("QUEUE_CAPACITY", 65536);
-        this.offerTimeoutMs = getEnvIntSafe("QUEUE_OFFER_TIMEOUT_MS", 50);
+        int workers = Env.positive("WORKERS", 32);
+        this.queueCapacity = Env.positive("QUEUE_CAPACITY", 65536);
+        this.offerTimeoutMs = Env.positive("QUEUE_OFFER_TIMEOUT_MS", 50);
+
+        if ("virtual".equalsIgnoreCase(Env.string("EXECUTION_MODE", "platform"))) {
+            this.virtualMaxInFlight = Env.positive("VIRTUAL_MAX_IN_FLIGHT", 10_000);
+            this.virtualPermits = new Semaphore(virtualMaxInFlight);
+            this.virtualExecutor = Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("pay-vworker-", 1).factory());
+            this.executor = null;
+            log.info("✅ PaymentQueue inicializada em virtual threads: maxInFlight={}, offerTimeoutMs={}",
+                    virtualMaxInFlight, offerTimeoutMs);
+            return;
+        }
+        this.virtualMaxInFlight = 0;
+        this.virtualPermits = null;
+        this.virtualExecutor = null;
 
         BlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(queueCapacity);
         ThreadFactory tf = new NamedThreadFactory("pay-worker");
@@ -40,31 +63,72 @@ public class PaymentQueue implements AutoCloseable {
                 workers, queueCapacity, offerTimeoutMs);
     }
 
+    /**
+     * @throws RejectedExecutionException se a fila continuar cheia após {@code QUEUE_OFFER_TIMEOUT_MS}
+     *         (a espera é feita pela {@link BlockOrLogPolicy})
+     */
     public void submit(Runnable task) {
         Objects.requireNonNull(task, "task");
+        if (virtualExecutor != null) {
+            submitVirtual(task);
+            return;
+        }
         try {
             executor.execute(task);
         } catch (RejectedExecutionException rex) {
-            boolean offered = false;
-            try {
-                offered = ((BlockingQueue<Runnable>) executor.getQueue())
-                        .offer(task, offerTimeoutMs, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException ie) {
-                Thread.currentThread().interrupt();
-            }
-            if (!offered) {
-                log.warn("⚠️ Fila de pagamentos saturada: rejeitando task após {} ms", offerTimeoutMs);
-                throw rex;
-            }
+            rejected.incrementAndGet();
+            log.warn("⚠️ Fila de pagamentos saturada: rejeitando task após {} ms", offerTimeoutMs);
+            throw rex;
+        }
+    }
+
+    private void submitVirtual(Runnable task) {
+        boolean acquired = false;
+        try {
+            acquired = virtualPermits.tryAcquire(offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!acquired) {
+            rejected.incrementAndGet();
+            log.warn("⚠️ Limite de pagamentos em voo atingido: rejeitando task após {} ms", offerTimeoutMs);
+            throw new RejectedExecutionException("Limite em voo atingido após " + offerTimeoutMs + "ms");
+        }
+        try {
+            virtualExecutor.execute(() -> {
+                try {
+                    task.run();
+                } finally {
+                    virtualPermits.release();
+                }
+            });
+        } catch (RejectedExecutionException rex) {
+            virtualPermits.release();
+            throw rex;
         }
     }
 
     public int getQueueSize() {
-        return executor.getQueue().size();
+        // Em virtual threads não há fila: toda task aceita já está rodando
+        return virtualExecutor != null ? 0 : executor.getQueue().size();
     }
 
     public int getActiveCount() {
-        return executor.getActiveCount();
+        return virtualExecutor != null
+                ? virtualMaxInFlight - virtualPermits.availablePermits()
+                : executor.getActiveCount();
+    }
+
+    public int getQueueCapacity() {
+        return virtualExecutor != null ? 0 : queueCapacity;
+    }
+
+    public int getWorkers() {
+        return virtualExecutor != null ? virtualMaxInFlight : executor.getMaximumPoolSize();
+    }
+
+    public long getRejectedCount() {
+        return rejected.get();
     }
 
     @Override
@@ -73,6 +137,7 @@ public class PaymentQueue implements AutoCloseable {
     }
 
     public void shutdownGracefully(long timeout, TimeUnit unit) {
+        ExecutorService executor = (virtualExecutor != null) ? virtualExecutor : this.executor;
         executor.shutdown();
         try {
             if (!executor.awaitTermination(timeout, unit)) {
@@ -85,25 +150,6 @@ public class PaymentQueue implements AutoCloseable {
         }
     }
 
-    private int getEnvIntSafe(String key, int def) {
-        String v = System.getenv(key);
-        if (v == null) {
-            log.warn("Variável {} não definida. Usando valor padrão: {}", key, def);
-            return def;
-        }
-        try {
-            int val = Integer.parseInt(v.trim());
-            if (val <= 0) {
-                log.warn("Valor inválido para {}: {}. Usando valor padrão: {}", key, val, def);
-                return def;
-            }
-            return val;
-        } catch (NumberFormatException e) {
-            log.warn("Valor inválido para {}: {}. Usando valor padrão: {}", key, v, def);
-            return def;
-        }
-    }
-
     private static final class NamedThreadFactory implements ThreadFactory {
         private final String base;
         private final AtomicInteger idx = new AtomicInteger(1);
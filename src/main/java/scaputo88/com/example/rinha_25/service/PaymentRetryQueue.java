@@ -0,0 +1,183 @@
+package scaputo88.com.example.rinha_25.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import scaputo88.com.example.rinha_25.configuration.Env;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+import scaputo88.com.example.rinha_25.repository.RedisRetryRepository;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Retentativas de pagamentos que não foram aceitos por nenhum processor. Os itens ficam no Redis
+ * ({@link RedisRetryRepository}), sobrevivem a restart e são drenados por qualquer instância,
+ * mas só enquanto o {@link ProcessorRouter} enxerga algum processor saudável. Um item drenado fica com
+ * lease de {@code RETRY_LEASE_MS} até o {@link #ack}; se a instância cair antes, volta para a fila.
+ */
+@Component
+public class PaymentRetryQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentRetryQueue.class);
+
+    private final RedisRetryRepository retryRepository;
+    private final ProcessorRouter processorRouter;
+    private final ScheduledExecutorService poller;
+    private final int maxAttempts;
+    private final long baseBackoffMs;
+    private final long maxBackoffMs;
+    private final int batchSize;
+    private final long leaseMs;
+
+    private volatile Consumer<RetryPayment> handler;
+
+    public PaymentRetryQueue(RedisRetryRepository retryRepository, ProcessorRouter processorRouter) {
+        this.retryRepository = retryRepository;
+        this.processorRouter = processorRouter;
+        this.maxAttempts = Env.integer("RETRY_MAX_ATTEMPTS", 12);
+        this.baseBackoffMs = Env.integer("RETRY_BASE_BACKOFF_MS", 100);
+        this.maxBackoffMs = Env.integer("RETRY_MAX_BACKOFF_MS", 10_000);
+        this.batchSize = Env.integer("RETRY_BATCH_SIZE", 200);
+        this.leaseMs = Env.integer("RETRY_LEASE_MS", 30_000);
+        long pollMs = Env.integer("RETRY_POLL_MS", 100);
+
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "pay-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        this.poller.scheduleWithFixedDelay(this::drain, pollMs, pollMs, TimeUnit.MILLISECONDS);
+
+        log.info("PaymentRetryQueue inicializada: maxAttempts={}, backoff={}..{}ms, batchSize={}, pollMs={}, leaseMs={}",
+                maxAttempts, baseBackoffMs, maxBackoffMs, batchSize, pollMs, leaseMs);
+    }
+
+    /** Registra quem recebe os pagamentos vencidos drenados da fila. */
+    public void start(Consumer<RetryPayment> handler) {
+        this.handler = handler;
+    }
+
+    /**
+     * Agenda a tentativa {@code attempt} (1 = primeira retentativa) com backoff exponencial e jitter.
+     * Com {@code processor}, a retentativa só pode ir para ele (uma tentativa anterior deu timeout lá).
+     * {@code waits}: vezes seguidas que o pagamento voltou sem envio (processor indisponível, fila cheia);
+     * alonga o backoff sem gastar o orçamento, que só conta envios ({@code attempt} não muda nesse caso).
+     *
+     * @return false se o orçamento de tentativas acabou ou o agendamento falhou
+     */
+    public boolean schedule(UUID correlationId, long amountCents, int attempt, ProcessorType processor, int waits) {
+        if (attempt > maxAttempts) {
+            log.error("Pagamento {} descartado: {} tentativas sem sucesso", correlationId, maxAttempts);
+            return false;
+        }
+        long dueAt = System.currentTimeMillis() + backoffMs(Math.max(1, attempt + waits));
+        try {
+            retryRepository.schedule(encode(correlationId, amountCents, attempt, processor, waits), dueAt);
+            return true;
+        } catch (Exception e) {
+            log.error("Falha ao agendar retentativa do pagamento {}: {}", correlationId, e.getMessage(), e);
+            return false;
+        }
+    }
+
+    /**
+     * Encerra o lease do item drenado: chamado depois que a tentativa terminou, inclusive quando ela
+     * agendou a próxima. Sem o ack (instância caiu, erro inesperado) o item volta quando o lease vencer.
+     */
+    public void ack(RetryPayment payment) {
+        try {
+            retryRepository.ack(payment.entry());
+        } catch (Exception e) {
+            log.warn("Falha no ack da retentativa do pagamento {}: {}", payment.correlationId(), e.getMessage());
+        }
+    }
+
+    public long size() {
+        try {
+            return retryRepository.size();
+        } catch (Exception e) {
+            return -1L;
+        }
+    }
+
+    public void purge() {
+        retryRepository.purge();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        poller.shutdownNow();
+    }
+
+    // "Equal jitter": metade do backoff fixa, metade aleatória
+    long backoffMs(int attempt) {
+        long exp = baseBackoffMs << Math.min(attempt - 1, 20);
+        long capped = Math.min(maxBackoffMs, exp);
+        long half = capped / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private void drain() {
+        Consumer<RetryPayment> h = handler;
+        if (h == null) {
+            return;
+        }
+        try {
+            if (!processorRouter.hasAvailable()) {
+                return;
+            }
+            List<String> due;
+            do {
+                due = retryRepository.claimDue(System.currentTimeMillis(), batchSize, leaseMs);
+                for (String entry : due) {
+                    RetryPayment payment = decode(entry);
+                    if (payment != null) {
+                        h.accept(payment);
+                    } else {
+                        retryRepository.ack(entry);
+                    }
+                }
+            } while (due.size() == batchSize);
+        } catch (Exception e) {
+            log.warn("Falha ao drenar fila de retentativas: {}", e.getMessage());
+        }
+    }
+
+    // "<uuid>|<centavos>|<tentativa>[|<processor>[|<esperas>]]", processor vazio quando não está preso
+    static String encode(UUID correlationId, long amountCents, int attempt, ProcessorType processor, int waits) {
+        String entry = correlationId + "|" + amountCents + "|" + attempt;
+        if (waits > 0) {
+            return entry + "|" + (processor != null ? processor.value : "") + "|" + waits;
+        }
+        return processor != null ? entry + "|" + processor.value : entry;
+    }
+
+    static RetryPayment decode(String entry) {
+        String[] parts = entry.split("\\|");
+        if (parts.length < 3) return null;
+        try {
+            ProcessorType processor = parts.length > 3 && !parts[3].isEmpty() ? ProcessorType.fromValue(parts[3]) : null;
+            int waits = parts.length > 4 ? Integer.parseInt(parts[4]) : 0;
+            return new RetryPayment(UUID.fromString(parts[0]), Long.parseLong(parts[1]), Integer.parseInt(parts[2]), processor,
+                    waits, entry);
+        } catch (IllegalArgumentException e) {
+            log.warn("Entrada inválida na fila de retentativas: {}", entry);
+            return null;
+        }
+    }
+
+    /**
+     * {@code processor}: único processor para o qual o pagamento pode ser reenviado, ou null.
+     * {@code waits}: reagendamentos seguidos sem envio, só para o backoff.
+     * {@code entry}: item da fila como drenado, para o {@link #ack}.
+     */
+    public record RetryPayment(UUID correlationId, long amountCents, int attempt, ProcessorType processor, int waits,
+                               String entry) {}
+}
@@ -2,18 +2,23 @@ package scaputo88.com.example.rinha_25.service;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.util.ClassUtils;
+import scaputo88.com.example.rinha_25.dto.PaymentSummaryWriter;
+import scaputo88.com.example.rinha_25.model.Money;
 import scaputo88.com.example.rinha_25.model.Payment;
-import scaputo88.com.example.rinha_25.model.PaymentRequest;
+import scaputo88.com.example.rinha_25.model.PaymentCommand;
 import scaputo88.com.example.rinha_25.model.PaymentSummary;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
 import scaputo88.com.example.rinha_25.repository.PaymentRepository;
+import scaputo88.com.example.rinha_25.service.ProcessorClient.Outcome;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 public class PaymentService {
@@ -22,96 +27,324 @@ public class PaymentService {
 
     private final PaymentRepository redisRepo;
     private final ProcessorClient processorClient;
-    private final ExecutorService asyncPool;
+    private final PaymentQueue paymentQueue;
+    private final ProcessorRouter processorRouter;
+    private final PaymentRetryQueue retryQueue;
+    private final PaymentDeduplicator deduplicator;
+    private final PaymentMetrics metrics;
+    // Presente com payments.ingest.mode=stream
+    private final PaymentStreamQueue streamQueue;
+    // Presente com payments.peer.url: o resumo soma a parcial da outra instância
+    private final PeerSummaryClient peer;
+    private final long summaryCacheTtlNanos;
+
+    // Último resumo serializado, reaproveitado enquanto (from, to, versão dos dados) não mudarem
+    private volatile RenderedSummary lastSummary;
+
+    private record RenderedSummary(Instant from, Instant to, long version, long renderedAtNanos, byte[] body) {
+    }
 
     public PaymentService(PaymentRepository redisRepo,
-                          ProcessorClient processorClient) {
+                          ProcessorClient processorClient,
+                          PaymentQueue paymentQueue,
+                          ProcessorRouter processorRouter,
+                          PaymentRetryQueue retryQueue,
+                          PaymentDeduplicator deduplicator,
+                          PaymentMetrics metrics,
+                          Optional<PaymentStreamQueue> streamQueue,
+                          Optional<PeerSummaryClient> peer,
+                          @Value("${payments.summary.cache-ttl-ms:1000}") long summaryCacheTtlMs) {
+        if (peer.isPresent() && !redisRepo.instanceLocal()) {
+            // Com o store compartilhado (Redis) as duas parciais já têm todos os pagamentos: o resumo sairia em dobro
+            throw new IllegalStateException("payments.peer.url exige um store local por instância (payments.store=offheap); store atual: "
+                    + ClassUtils.getUserClass(redisRepo).getSimpleName());
+        }
         this.redisRepo = redisRepo;
         this.processorClient = processorClient;
-        this.asyncPool = Executors.newFixedThreadPool(Math.max(4, Runtime.getRuntime().availableProcessors()));
+        this.paymentQueue = paymentQueue;
+        this.processorRouter = processorRouter;
+        this.retryQueue = retryQueue;
+        this.deduplicator = deduplicator;
+        this.metrics = metrics;
+        this.streamQueue = streamQueue.orElse(null);
+        this.peer = peer.orElse(null);
+        this.summaryCacheTtlNanos = summaryCacheTtlMs * 1_000_000L;
+        this.retryQueue.start(this::resume);
+        streamQueue.ifPresent(stream -> stream.start(this::processStreamed));
     }
 
-    public void processAsync(PaymentRequest request) {
-        asyncPool.submit(() -> {
-            Instant now = Instant.now();
-            UUID correlationId = UUID.fromString(request.getCorrelationId());
-            BigDecimal amount = request.getAmount();
-            if (amount == null) {
-                log.warn("Pagamento {} ignorado: amount nulo", correlationId);
-                return;
+    /**
+     * Enfileira o pagamento na {@link PaymentQueue} ou, no modo stream, no {@link PaymentStreamQueue}
+     * (com o Redis fora, cai para a fila local).
+     *
+     * @return false se o correlationId já foi recebido (nada é enfileirado)
+     * @throws java.util.concurrent.RejectedExecutionException se a fila estiver saturada
+     */
+    public boolean processAsync(PaymentCommand command) {
+        UUID correlationId = command.correlationId();
+        if (!command.hasAmount()) {
+            log.warn("Pagamento {} ignorado: amount nulo", correlationId);
+            return true;
+        }
+        if (!deduplicator.accept(correlationId)) {
+            log.debug("Pagamento {} duplicado, descartado antes do processor", correlationId);
+            return false;
+        }
+        long amount = command.amountCents();
+        if (streamQueue != null) {
+            try {
+                streamQueue.append(correlationId, amount);
+                return true;
+            } catch (Exception e) {
+                log.warn("Falha no XADD do pagamento {}, usando a fila local: {}", correlationId, e.getMessage());
             }
+        }
+        long enqueuedAt = System.nanoTime();
+        try {
+            paymentQueue.submit(() -> {
+                metrics.recordQueueWait(enqueuedAt);
+                try {
+                    if (!deduplicator.claim(correlationId)) {
+                        log.debug("Pagamento {} já reivindicado por outra instância", correlationId);
+                        return;
+                    }
+                    process(correlationId, amount, 0);
+                } catch (Exception e) {
+                    log.error("Erro ao processar pagamento {}: {}", correlationId, e.getMessage(), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            deduplicator.release(correlationId, false);
+            throw e;
+        }
+        return true;
+    }
 
-            log.debug("Iniciando processamento do pagamento {} no valor de R${}", correlationId, amount);
+    // Entrada do stream, já num worker da PaymentQueue. Uma redelivery (consumer anterior parou no meio)
+    // pode já ter passado pelo claim e pelo processor: vai como retentativa, em que o 422 conta como aceito.
+    private void processStreamed(PaymentStreamQueue.StreamPayment payment) {
+        if (payment.redelivered()) {
+            process(payment.correlationId(), payment.amountCents(), 1);
+            return;
+        }
+        if (!deduplicator.claim(payment.correlationId())) {
+            log.debug("Pagamento {} já reivindicado por outra instância", payment.correlationId());
+            return;
+        }
+        process(payment.correlationId(), payment.amountCents(), 0);
+    }
+
+    private void process(UUID correlationId, long amount, int attempt) {
+        process(correlationId, amount, attempt, null, 0);
+    }
+
+    /**
+     * Envia ao processor escolhido pelo {@link ProcessorRouter} ou, com {@code pinned}, só a ele. Só uma
+     * {@link Outcome#FAILURE} (5xx/erro de conexão: o processor não ficou com o pagamento) passa para o
+     * outro processor. Um {@link Outcome#TIMEOUT} pode ter sido aceito do lado de lá: vai para a fila de
+     * retentativas preso ao mesmo processor, onde o 422 de retentativa conta como aceito. Um 422 na
+     * primeira tentativa é uma duplicata enviada por outra instância, que é quem registra o pagamento.
+     * {@code attempt} conta só envios feitos; {@code waits}, as vezes seguidas em que não houve envio.
+     */
+    private void process(UUID correlationId, long amount, int attempt, ProcessorType pinned, int waits) {
+        ProcessorType primary = pinned != null
+                ? (processorRouter.acquire(pinned) ? pinned : null)
+                : processorRouter.route();
+        if (primary == null) {
+            // Processor indisponível: aguarda na fila de retentativas sem gastar tentativa, já que nada foi
+            // enviado (um pagamento preso pode já ter sido aceito e não pode ser descartado por esperar)
+            scheduleRetry(correlationId, amount, attempt, pinned, waits + 1);
+            return;
+        }
 
-            boolean success = processorClient.sendPayment("default", correlationId, amount, now);
-            String processorUsed = null;
+        log.debug("Iniciando processamento do pagamento {} no valor de {} centavos via {}", correlationId, amount, primary.value);
 
-            if (success) {
-                processorUsed = "default";
-            } else {
-                log.warn("Processor default falhou, tentando fallback...");
-                success = processorClient.sendPayment("fallback", correlationId, amount, now);
-                if (success) {
-                    processorUsed = "fallback";
+        Instant now = Instant.now();
+        ProcessorType processorUsed = null;
+        ProcessorType sentTo = primary;
+        Outcome outcome = processorClient.sendPayment(primary.value, correlationId, amount, now);
+        if (accepted(outcome, attempt)) {
+            processorUsed = primary;
+        } else if (outcome == Outcome.FAILURE && pinned == null) {
+            ProcessorType alternative = processorRouter.alternative(primary);
+            if (alternative != null) {
+                log.warn("Processor {} falhou, tentando {}...", primary.value, alternative.value);
+                sentTo = alternative;
+                outcome = processorClient.sendPayment(alternative.value, correlationId, amount, now);
+                if (accepted(outcome, attempt)) {
+                    processorUsed = alternative;
                 }
             }
+        }
 
-            if (success && processorUsed != null) {
-                BigDecimal fee = "fallback".equals(processorUsed)
-                        ? amount.multiply(BigDecimal.valueOf(0.15))
-                        : amount.multiply(BigDecimal.valueOf(0.05));
-                fee = fee.setScale(2, RoundingMode.DOWN);
-
-                Payment payment = new Payment(
-                        correlationId,
-                        processorUsed,
-                        amount,
-                        fee,
-                        now,
-                        "fallback".equals(processorUsed)
-                );
+        if (processorUsed != null) {
+            if (processorUsed == ProcessorType.FALLBACK) {
+                metrics.fallbackUsed();
+            }
+            long fee = Money.feeCents(amount, processorUsed.feePercent);
 
-                try {
-                    redisRepo.save(payment);
-                } catch (Exception e) {
-                    log.error("Falha ao salvar pagamento no Redis: {}", e.getMessage(), e);
-                }
-            } else {
-                log.debug("Pagamento {} não persistido (sem sucesso em default/fallback)", correlationId);
+            Payment payment = new Payment(
+                    correlationId,
+                    processorUsed.value,
+                    amount,
+                    fee,
+                    now,
+                    processorUsed == ProcessorType.FALLBACK
+            );
+
+            long saveStart = System.nanoTime();
+            try {
+                redisRepo.save(payment);
+            } catch (Exception e) {
+                // O processor já ficou com o pagamento: sem gravação ele falta no resumo
+                metrics.paymentDropped();
+                log.error("Falha ao salvar pagamento {}: {}", correlationId, e.getMessage(), e);
             }
+            metrics.recordSave(saveStart);
+        } else if (outcome == Outcome.REJECTED) {
+            log.debug("Pagamento {} recusado por {} na primeira tentativa (duplicata de outra instância), descartado",
+                    correlationId, sentTo.value);
+        } else if (outcome == Outcome.TIMEOUT) {
+            log.debug("Pagamento {} sem resposta de {}; retentativa {} no mesmo processor", correlationId, sentTo.value, attempt + 1);
+            scheduleRetry(correlationId, amount, attempt + 1, sentTo, 0);
+        } else {
+            log.debug("Pagamento {} sem sucesso em default/fallback; agendando retentativa {}", correlationId, attempt + 1);
+            scheduleRetry(correlationId, amount, attempt + 1, pinned, 0);
+        }
+
+        log.debug("Pagamento {} via {}, valor {} centavos, sucesso: {}",
+                correlationId, processorUsed != null ? processorUsed.value : "none", amount, processorUsed != null);
+    }
 
-            log.debug("Pagamento {} via {}, valor R${}, sucesso: {}",
-                    correlationId, processorUsed != null ? processorUsed : "none", amount, success);
-        });
+    // 422 numa retentativa: o processor já tem o correlationId de uma tentativa anterior (timeout do nosso
+    // lado com o pagamento aceito do lado dele), então o pagamento conta como processado ali. Na primeira
+    // tentativa o 422 só viria de uma duplicata enviada por outra instância, que é quem o registra.
+    private static boolean accepted(Outcome outcome, int attempt) {
+        return outcome == Outcome.SUCCESS || (outcome == Outcome.REJECTED && attempt > 0);
     }
 
+    // Pagamento vencido na fila de retentativas: volta para a PaymentQueue. O ack vem só depois que a
+    // tentativa terminou (gravada, descartada ou reagendada); se ela lançar, o lease vence e outra
+    // instância a retoma
+    private void resume(PaymentRetryQueue.RetryPayment retry) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            paymentQueue.submit(() -> {
+                metrics.recordQueueWait(enqueuedAt);
+                process(retry.correlationId(), retry.amountCents(), retry.attempt(), retry.processor(), retry.waits());
+                retryQueue.ack(retry);
+            });
+        } catch (RejectedExecutionException e) {
+            scheduleRetry(retry.correlationId(), retry.amountCents(), retry.attempt(), retry.processor(), retry.waits() + 1);
+            retryQueue.ack(retry);
+        }
+    }
+
+    // Sem retentativa possível o pagamento é perdido; libera o correlationId para um reenvio do cliente.
+    // pinned: processor que pode já ter o pagamento (timeout), o único para o qual ele pode ser reenviado
+    private void scheduleRetry(UUID correlationId, long amount, int attempt, ProcessorType pinned, int waits) {
+        if (!retryQueue.schedule(correlationId, amount, attempt, pinned, waits)) {
+            metrics.paymentDropped();
+            deduplicator.release(correlationId, true);
+        }
+    }
+
+    /**
+     * Resumo de todos os pagamentos: no modo em cluster, a parte local somada à da outra instância; se ela
+     * não responder, só a parte local.
+     */
     public PaymentSummary getSummary(Instant from, Instant to) {
+        PaymentSummary local = getLocalSummary(from, to);
+        if (peer == null) {
+            return local;
+        }
+        PaymentSummary remote = peer.fetchSummary(from, to);
+        if (remote == null) {
+            metrics.peerSummaryDegraded();
+            return local;
+        }
+        return new PaymentSummary(
+                local.default_total_amount() + remote.default_total_amount(),
+                local.default_total_fee() + remote.default_total_fee(),
+                local.default_total_requests() + remote.default_total_requests(),
+                local.fallback_total_amount() + remote.fallback_total_amount(),
+                local.fallback_total_fee() + remote.fallback_total_fee(),
+                local.fallback_total_requests() + remote.fallback_total_requests()
+        );
+    }
+
+    /** Resumo só do {@link PaymentRepository} desta instância (com Redis, já inclui as duas). */
+    public PaymentSummary getLocalSummary(Instant from, Instant to) {
         log.debug("Buscando resumo de pagamentos entre {} e {}", from, to);
         PaymentSummary summary = null;
+        long start = System.nanoTime();
         try {
             summary = redisRepo.getSummary(from, to);
         } catch (Exception e) {
             log.error("Erro ao buscar resumo no Redis: {}", e.getMessage(), e);
         }
+        metrics.recordSummary(start);
 
         if (summary == null) {
             log.warn("Resumo inexistente ou erro na consulta, retornando valores zerados.");
             summary = new PaymentSummary(
-                    BigDecimal.ZERO, // default_total_amount
-                    BigDecimal.ZERO, // default_total_fee
-                    0L,               // default_total_requests
-                    BigDecimal.ZERO, // fallback_total_amount
-                    BigDecimal.ZERO, // fallback_total_fee
-                    0L               // fallback_total_requests
+                    0L, // default_total_amount
+                    0L, // default_total_fee
+                    0L, // default_total_requests
+                    0L, // fallback_total_amount
+                    0L, // fallback_total_fee
+                    0L  // fallback_total_requests
             );
         }
         return summary;
     }
 
+    /**
+     * Resumo já serializado ({@link PaymentSummaryWriter}). Consultas repetidas com o mesmo intervalo
+     * e sem gravações no meio devolvem o mesmo array, ao custo de um GET da versão. O TTL limita a
+     * vida da entrada caso a versão se repita (ex.: Redis reiniciado sem persistência). No modo em cluster
+     * não há versão que cubra a outra instância, então não há reaproveitamento.
+     */
+    public byte[] getSummaryJson(Instant from, Instant to) {
+        long version = peer == null ? redisRepo.dataVersion() : -1L;
+        long now = System.nanoTime();
+        RenderedSummary cached = lastSummary;
+        if (version >= 0 && cached != null && cached.version() == version
+                && Objects.equals(cached.from(), from) && Objects.equals(cached.to(), to)
+                && now - cached.renderedAtNanos() < summaryCacheTtlNanos) {
+            return cached.body();
+        }
+
+        byte[] body = PaymentSummaryWriter.write(getSummary(from, to));
+        if (version >= 0 && summaryCacheTtlNanos > 0) {
+            lastSummary = new RenderedSummary(from, to, version, now, body);
+        }
+        return body;
+    }
+
+    public int migrateLegacyMembers() {
+        log.info("Migrando members legados do ZSET para o formato binário...");
+        return redisRepo.migrateLegacyMembers();
+    }
+
+    /** Limpa os pagamentos desta instância e, no modo em cluster, os da outra. */
     public void purgePayments() {
+        purgeLocalPayments();
+        if (peer != null) {
+            peer.purge();
+        }
+    }
+
+    public void purgeLocalPayments() {
         log.warn("Limpando todos os pagamentos armazenados no Redis...");
         try {
             redisRepo.purgePayments();
+            lastSummary = null;
+            retryQueue.purge();
+            if (streamQueue != null) {
+                streamQueue.purge();
+            }
+            deduplicator.purge();
             log.info("Todos os pagamentos foram removidos.");
         } catch (Exception e) {
             log.error("Erro ao limpar pagamentos: {}", e.getMessage(), e);
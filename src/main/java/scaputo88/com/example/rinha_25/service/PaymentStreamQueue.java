@@ -0,0 +1,255 @@
+package scaputo88.com.example.rinha_25.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import scaputo88.com.example.rinha_25.configuration.Env;
+import scaputo88.com.example.rinha_25.repository.RedisPaymentStreamRepository;
+import scaputo88.com.example.rinha_25.repository.RedisPaymentStreamRepository.ClaimResult;
+import scaputo88.com.example.rinha_25.repository.RedisPaymentStreamRepository.StreamEntry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Ingestão por Redis Stream ({@code payments.ingest.mode=stream}): o {@code POST /payments} só faz
+ * {@code XADD} ({@link #append}) e os workers das duas instâncias consomem pelo mesmo consumer group,
+ * então a carga se divide pelo ritmo de cada uma e não pelo balanceamento do nginx.
+ * <p>
+ * A thread {@code pay-stream} lê em lotes de até {@code STREAM_BATCH_SIZE} ({@code XREADGROUP} com
+ * {@code BLOCK STREAM_BLOCK_MS}), limitada a {@code STREAM_MAX_IN_FLIGHT} entradas lidas e ainda não
+ * confirmadas nesta instância, e entrega cada uma à {@link PaymentQueue}. As confirmações
+ * ({@code XACK} + {@code XDEL}) saem em lote a cada volta do laço. Entradas de um consumer que parou
+ * ficam pendentes e, passados {@code STREAM_CLAIM_IDLE_MS}, são tomadas por {@code XAUTOCLAIM}
+ * (a cada {@code STREAM_CLAIM_INTERVAL_MS}) e reprocessadas como redelivery.
+ */
+@Component
+@ConditionalOnProperty(name = "payments.ingest.mode", havingValue = "stream")
+public class PaymentStreamQueue {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentStreamQueue.class);
+
+    private final RedisPaymentStreamRepository streamRepository;
+    private final PaymentQueue paymentQueue;
+    private final String consumer;
+    private final int batchSize;
+    private final long blockMs;
+    private final long claimIdleMs;
+    private final long claimIntervalNanos;
+    private final Semaphore inFlight;
+    private final ConcurrentLinkedQueue<String> acks = new ConcurrentLinkedQueue<>();
+    private final ExecutorService reader;
+
+    private volatile boolean running = true;
+    private volatile Consumer<StreamPayment> handler;
+
+    public PaymentStreamQueue(RedisPaymentStreamRepository streamRepository, PaymentQueue paymentQueue) {
+        this.streamRepository = streamRepository;
+        this.paymentQueue = paymentQueue;
+        this.consumer = Env.string("HOSTNAME", "api-" + UUID.randomUUID().toString().substring(0, 8));
+        this.batchSize = Env.integer("STREAM_BATCH_SIZE", 64);
+        this.blockMs = Env.integer("STREAM_BLOCK_MS", 100);
+        this.claimIdleMs = Env.integer("STREAM_CLAIM_IDLE_MS", 5000);
+        this.claimIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Env.integer("STREAM_CLAIM_INTERVAL_MS", 1000));
+        int maxInFlight = Env.integer("STREAM_MAX_IN_FLIGHT", paymentQueue.getWorkers() * 2);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.reader = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "pay-stream");
+            t.setDaemon(true);
+            return t;
+        });
+
+        log.info("PaymentStreamQueue inicializada: consumer={}, batchSize={}, blockMs={}, maxInFlight={}, claimIdleMs={}",
+                consumer, batchSize, blockMs, maxInFlight, claimIdleMs);
+    }
+
+    /** Registra quem processa as entradas lidas do stream e começa a consumir. */
+    public void start(Consumer<StreamPayment> handler) {
+        this.handler = handler;
+        reader.execute(this::run);
+    }
+
+    /** {@code XADD} do pagamento; qualquer instância pode processá-lo. */
+    public void append(UUID correlationId, long amountCents) {
+        streamRepository.append(correlationId + "|" + amountCents);
+    }
+
+    /** Entradas entregues e não confirmadas, somando as duas instâncias; -1 sem Redis. */
+    public long pending() {
+        try {
+            return streamRepository.pending();
+        } catch (Exception e) {
+            return -1L;
+        }
+    }
+
+    public void purge() {
+        streamRepository.purge();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        reader.shutdownNow();
+        try {
+            flushAcks();
+        } catch (Exception e) {
+            log.warn("Falha ao confirmar entradas do stream no shutdown: {}", e.getMessage());
+        }
+    }
+
+    private void run() {
+        boolean ownPending = true;
+        String claimCursor = "0-0";
+        long nextClaim = System.nanoTime() + claimIntervalNanos;
+        while (running) {
+            try {
+                if (ownPending) {
+                    // Reinício com o mesmo nome (HOSTNAME): retoma o que ficou pendente com este consumer
+                    // (o primeiro lote; o resto volta por XAUTOCLAIM)
+                    streamRepository.ensureGroup();
+                    dispatch(streamRepository.read(consumer, batchSize, 0, true), true);
+                    ownPending = false;
+                }
+                flushAcks();
+                if (System.nanoTime() - nextClaim >= 0) {
+                    nextClaim = System.nanoTime() + claimIntervalNanos;
+                    claimCursor = claimStale(claimCursor);
+                }
+
+                int permits = acquirePermits();
+                if (permits == 0) {
+                    continue;
+                }
+                List<StreamEntry> entries;
+                try {
+                    entries = streamRepository.read(consumer, permits, blockMs, false);
+                } finally {
+                    inFlight.release(permits);
+                }
+                dispatch(entries, false);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Falha ao consumir stream de pagamentos: {}", e.getMessage());
+                if (e.getMessage() != null && e.getMessage().contains("NOGROUP")) {
+                    ownPending = true;
+                }
+                sleepQuietly(blockMs);
+            }
+        }
+    }
+
+    // Pelo menos uma vaga (esperando até blockMs) e então as que estiverem livres, até o tamanho do lote
+    private int acquirePermits() throws InterruptedException {
+        if (!inFlight.tryAcquire(blockMs, TimeUnit.MILLISECONDS)) {
+            return 0;
+        }
+        int permits = 1;
+        while (permits < batchSize && inFlight.tryAcquire()) {
+            permits++;
+        }
+        return permits;
+    }
+
+    private String claimStale(String cursor) {
+        ClaimResult result = streamRepository.autoClaim(consumer, claimIdleMs, cursor, batchSize);
+        if (!result.entries().isEmpty()) {
+            log.info("Stream: {} entradas pendentes tomadas de consumers parados", result.entries().size());
+            dispatch(result.entries(), true);
+        }
+        return result.nextCursor();
+    }
+
+    private void dispatch(List<StreamEntry> entries, boolean redelivered) {
+        Consumer<StreamPayment> h = handler;
+        List<String> invalid = new ArrayList<>();
+        for (StreamEntry entry : entries) {
+            StreamPayment payment = decode(entry, redelivered);
+            if (payment == null) {
+                invalid.add(entry.id());
+                continue;
+            }
+            // Vaga liberada quando o worker termina; só espera aqui com entradas pendentes/tomadas
+            inFlight.acquireUninterruptibly();
+            try {
+                paymentQueue.submit(() -> {
+                    try {
+                        h.accept(payment);
+                    } catch (Exception e) {
+                        log.error("Erro ao processar pagamento {} do stream: {}", payment.correlationId(), e.getMessage(), e);
+                    } finally {
+                        acks.add(payment.id());
+                        inFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // Fica pendente no grupo e volta por XAUTOCLAIM depois de STREAM_CLAIM_IDLE_MS
+                inFlight.release();
+            }
+        }
+        if (!invalid.isEmpty()) {
+            streamRepository.ack(invalid);
+        }
+    }
+
+    private void flushAcks() {
+        if (acks.isEmpty()) {
+            return;
+        }
+        List<String> ids = new ArrayList<>();
+        String id;
+        while ((id = acks.poll()) != null) {
+            ids.add(id);
+        }
+        try {
+            streamRepository.ack(ids);
+        } catch (Exception e) {
+            // Sem o ack as entradas são reprocessadas por XAUTOCLAIM; o ZADD NX da gravação evita contar duas vezes
+            log.warn("Falha ao confirmar {} entradas do stream: {}", ids.size(), e.getMessage());
+        }
+    }
+
+    private static StreamPayment decode(StreamEntry entry, boolean redelivered) {
+        if (entry.payload() == null) {
+            log.warn("Entrada {} do stream sem pagamento", entry.id());
+            return null;
+        }
+        String[] parts = entry.payload().split("\\|");
+        if (parts.length < 2) {
+            log.warn("Entrada inválida no stream: {}", entry.payload());
+            return null;
+        }
+        try {
+            return new StreamPayment(entry.id(), UUID.fromString(parts[0]), Long.parseLong(parts[1]), redelivered);
+        } catch (IllegalArgumentException e) {
+            log.warn("Entrada inválida no stream: {}", entry.payload());
+            return null;
+        }
+    }
+
+    private static void sleepQuietly(long ms) {
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** {@code redelivered}: entrada já entregue antes (pendente deste consumer ou tomada de outro). */
+    public record StreamPayment(String id, UUID correlationId, long amountCents, boolean redelivered) {}
+}
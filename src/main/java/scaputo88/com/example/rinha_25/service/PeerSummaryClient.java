@@ -0,0 +1,117 @@
+package scaputo88.com.example.rinha_25.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.stereotype.Component;
+import scaputo88.com.example.rinha_25.model.PaymentSummary;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Cliente da outra instância no modo em cluster ({@code payments.peer.url}, env {@code PAYMENTS_PEER_URL}):
+ * cada instância guarda só os próprios pagamentos (ex.: {@code payments.store=offheap}) e o resumo soma a
+ * parcial local com a da outra, lida em {@code GET /internal/peer/summary}.
+ * <p>
+ * A parcial trafega como seis inteiros em centavos, na ordem do {@link PaymentSummary}. Sem resposta em
+ * {@code payments.peer.timeout-ms}, {@link #fetchSummary} devolve null e o resumo sai só com a parte local.
+ */
+@Component
+@ConditionalOnExpression("!'${payments.peer.url:}'.isBlank()")
+public class PeerSummaryClient {
+
+    private static final Logger log = LoggerFactory.getLogger(PeerSummaryClient.class);
+
+    private static final Duration PURGE_TIMEOUT = Duration.ofSeconds(2);
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final Duration timeout;
+
+    public PeerSummaryClient(@Value("${payments.peer.url}") String baseUrl,
+                             @Value("${payments.peer.timeout-ms:200}") int timeoutMs) {
+        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        log.info("PeerSummaryClient inicializado: peer={}, timeoutMs={}", this.baseUrl, timeoutMs);
+    }
+
+    /** @return parcial da outra instância, ou null se ela não respondeu a tempo */
+    public PaymentSummary fetchSummary(Instant from, Instant to) {
+        StringBuilder uri = new StringBuilder(baseUrl).append("/internal/peer/summary");
+        char sep = '?';
+        if (from != null) {
+            uri.append(sep).append("from=").append(from);
+            sep = '&';
+        }
+        if (to != null) {
+            uri.append(sep).append("to=").append(to);
+        }
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(uri.toString()))
+                    .timeout(timeout)
+                    .GET()
+                    .build();
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                log.warn("Resumo parcial da outra instância: HTTP {}", response.statusCode());
+                return null;
+            }
+            return decode(response.body());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (Exception e) {
+            log.warn("Resumo parcial da outra instância indisponível: {}", e.toString());
+            return null;
+        }
+    }
+
+    /** Limpa os pagamentos da outra instância; falha só é registrada no log. */
+    public void purge() {
+        try {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/internal/peer/purge"))
+                    .timeout(PURGE_TIMEOUT)
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 != 2) {
+                log.error("Falha ao limpar pagamentos da outra instância: HTTP {}", response.statusCode());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("Falha ao limpar pagamentos da outra instância: {}", e.toString());
+        }
+    }
+
+    /** {@code "<default amount>,<default fee>,<default requests>,<fallback amount>,<fallback fee>,<fallback requests>"} */
+    public static String encode(PaymentSummary summary) {
+        return summary.default_total_amount() + "," + summary.default_total_fee() + "," + summary.default_total_requests()
+                + "," + summary.fallback_total_amount() + "," + summary.fallback_total_fee() + "," + summary.fallback_total_requests();
+    }
+
+    static PaymentSummary decode(String body) {
+        String[] parts = body.trim().split(",");
+        if (parts.length != 6) {
+            throw new IllegalArgumentException("Resumo parcial inválido: " + body);
+        }
+        return new PaymentSummary(
+                Long.parseLong(parts[0]),
+                Long.parseLong(parts[1]),
+                Long.parseLong(parts[2]),
+                Long.parseLong(parts[3]),
+                Long.parseLong(parts[4]),
+                Long.parseLong(parts[5])
+        );
+    }
+}
@@ -0,0 +1,234 @@
+package scaputo88.com.example.rinha_25.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import scaputo88.com.example.rinha_25.configuration.Env;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+import scaputo88.com.example.rinha_25.service.ProcessorClient.Outcome;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Circuit breaker e timeout adaptativo por processor, alimentados pelo resultado de cada
+ * {@code POST /payments} ({@link #onResult}).
+ * <p>
+ * Circuito: {@code CB_FAILURE_THRESHOLD} falhas seguidas (erro ou timeout) abrem o circuito e o
+ * {@link ProcessorRouter} deixa de escolher o processor. Depois de {@code CB_OPEN_MS} uma única chamada de
+ * teste passa (meio aberto): sucesso fecha o circuito, falha reabre. Um health check saudável libera o
+ * teste na hora.
+ * <p>
+ * Timeout: a cada janela de 1s com amostras suficientes, {@code 2 x p99} das chamadas (timeouts entram
+ * como amostras no valor do timeout, então timeouts demais fazem o limite subir), nunca abaixo de
+ * {@code 2 x minResponseTime} do último health check nem fora de {@code [PP_TIMEOUT_MIN_MS, PP_TIMEOUT_MS]}.
+ * Janelas com poucas amostras levam o timeout de volta, pela metade da distância a cada uma, para
+ * {@code PP_TIMEOUT_MS}, que também vale depois de mais de 1s sem chamadas.
+ * Tudo sem lock: contadores atômicos, e a janela é fechada por quem ganhar o CAS do próximo instante.
+ */
+@Component
+public class ProcessorCircuitBreaker {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessorCircuitBreaker.class);
+
+    private static final int CLOSED = 0;
+    private static final int OPEN = 1;
+    private static final int HALF_OPEN = 2;
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final int MIN_SAMPLES = 50;
+    private static final int FACTOR = 2;
+
+    // Limites superiores dos buckets de latência: 1ms, x1.25 até passar de 10s
+    private static final long[] BOUNDS = buildBounds();
+
+    private final Map<ProcessorType, State> states = new EnumMap<>(ProcessorType.class);
+    private final int failureThreshold;
+    private final long openNanos;
+    private final boolean adaptive;
+    private final int minTimeoutMs;
+    private final int maxTimeoutMs;
+
+    @Autowired
+    public ProcessorCircuitBreaker(MeterRegistry registry) {
+        this(registry, Env.integer("CB_FAILURE_THRESHOLD", 5), Env.integer("CB_OPEN_MS", 1000),
+                Env.flag("PP_TIMEOUT_ADAPTIVE", true), Env.integer("PP_TIMEOUT_MS", 250), Env.integer("PP_TIMEOUT_MIN_MS", 100));
+    }
+
+    ProcessorCircuitBreaker(MeterRegistry registry, int failureThreshold, long openMs, boolean adaptive,
+                            int maxTimeoutMs, int minTimeoutMs) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.adaptive = adaptive;
+        this.maxTimeoutMs = maxTimeoutMs;
+        this.minTimeoutMs = Math.min(minTimeoutMs, maxTimeoutMs);
+        for (ProcessorType type : ProcessorType.values()) {
+            State state = new State(maxTimeoutMs);
+            states.put(type, state);
+            Gauge.builder("payments.processor.circuit", state.mode, AtomicInteger::get)
+                    .description("Estado do circuito: 0 fechado, 1 aberto, 2 meio aberto")
+                    .tag("processor", type.value)
+                    .register(registry);
+            Gauge.builder("payments.processor.timeout", this, b -> b.timeoutMs(type) / 1000.0)
+                    .description("Timeout atual do POST /payments")
+                    .tag("processor", type.value)
+                    .baseUnit("seconds")
+                    .register(registry);
+        }
+        log.info("ProcessorCircuitBreaker inicializado: failureThreshold={}, openMs={}, adaptive={}, timeout={}..{}ms",
+                failureThreshold, TimeUnit.NANOSECONDS.toMillis(openNanos), adaptive, minTimeoutMs, maxTimeoutMs);
+    }
+
+    /**
+     * Reserva uma chamada ao processor: sempre com o circuito fechado; com ele aberto, só a chamada de
+     * teste depois de {@code CB_OPEN_MS}. Quem recebe {@code true} deve chamar o processor e reportar em
+     * {@link #onResult}; um teste não reportado é liberado de novo após {@code CB_OPEN_MS}.
+     */
+    public boolean tryAcquire(ProcessorType type) {
+        State s = states.get(type);
+        if (failureThreshold <= 0 || s.mode.get() == CLOSED) {
+            return true;
+        }
+        long now = System.nanoTime();
+        long since = s.since.get();
+        if (now - since < openNanos || !s.since.compareAndSet(since, now)) {
+            return false;
+        }
+        s.mode.set(HALF_OPEN);
+        log.info("Circuito de {} meio aberto: enviando chamada de teste", type.value);
+        return true;
+    }
+
+    /** Mesmo critério de {@link #tryAcquire}, sem reservar a chamada de teste. */
+    public boolean isAvailable(ProcessorType type) {
+        State s = states.get(type);
+        return failureThreshold <= 0 || s.mode.get() == CLOSED || System.nanoTime() - s.since.get() >= openNanos;
+    }
+
+    public void onResult(ProcessorType type, Outcome outcome, long elapsedNanos) {
+        State s = states.get(type);
+        // 4xx (ex.: 422 de correlationId repetido) é resposta de um processor funcionando
+        boolean ok = outcome == Outcome.SUCCESS || outcome == Outcome.REJECTED;
+        if (ok || outcome == Outcome.TIMEOUT) {
+            recordLatency(s, elapsedNanos);
+        }
+        if (failureThreshold <= 0) {
+            return;
+        }
+        if (ok) {
+            if (s.failures.get() != 0) {
+                s.failures.set(0);
+            }
+            if (s.mode.get() != CLOSED && s.mode.getAndSet(CLOSED) != CLOSED) {
+                log.info("Circuito de {} fechado", type.value);
+            }
+            return;
+        }
+        int failures = s.failures.incrementAndGet();
+        int mode = s.mode.get();
+        if (mode == HALF_OPEN || (mode == CLOSED && failures >= failureThreshold)) {
+            s.since.set(System.nanoTime());
+            if (s.mode.getAndSet(OPEN) != OPEN) {
+                log.warn("Circuito de {} aberto após {} falhas seguidas", type.value, failures);
+            }
+        }
+    }
+
+    /** Resultado do health check: atualiza o piso do timeout e, se saudável, antecipa o teste do circuito aberto. */
+    public void onHealth(ProcessorType type, ProcessorClient.HealthStatus status) {
+        State s = states.get(type);
+        if (!status.healthy()) {
+            return;
+        }
+        s.minResponseTimeMs = status.minResponseTime();
+        if (s.mode.get() == OPEN) {
+            s.since.set(System.nanoTime() - openNanos);
+        }
+    }
+
+    /** Timeout, em ms, a usar no próximo {@code POST /payments} para o processor. */
+    public int timeoutMs(ProcessorType type) {
+        if (!adaptive) {
+            return maxTimeoutMs;
+        }
+        State s = states.get(type);
+        if (System.nanoTime() - s.nextWindow.get() >= WINDOW_NANOS) {
+            // Nenhuma janela fechada há mais de 1s (sem chamadas): o último p99 já não diz nada
+            return maxTimeoutMs;
+        }
+        long floor = (long) s.minResponseTimeMs * FACTOR;
+        long timeout = Math.max(s.observedTimeoutMs, floor);
+        return (int) Math.max(minTimeoutMs, Math.min(maxTimeoutMs, timeout));
+    }
+
+    private void recordLatency(State s, long elapsedNanos) {
+        int idx = Arrays.binarySearch(BOUNDS, elapsedNanos);
+        s.window.incrementAndGet(idx >= 0 ? idx : Math.min(-idx - 1, BOUNDS.length - 1));
+
+        long now = System.nanoTime();
+        long next = s.nextWindow.get();
+        if (now - next >= 0 && s.nextWindow.compareAndSet(next, now + WINDOW_NANOS)) {
+            closeWindow(s);
+        }
+    }
+
+    // Só um thread por vez chega aqui (CAS do nextWindow); incrementos concorrentes ao zerar podem se perder.
+    // A janela sempre recomeça: com poucas amostras o timeout volta aos poucos para PP_TIMEOUT_MS em vez de
+    // ficar preso ao último p99 de um período de carga
+    private void closeWindow(State s) {
+        long total = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            total += s.window.get(i);
+        }
+        long target = (total * 99 + 99) / 100;
+        long seen = 0;
+        int p99 = -1;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += s.window.getAndSet(i, 0);
+            if (p99 < 0 && seen >= target) {
+                p99 = i;
+            }
+        }
+        if (total < MIN_SAMPLES) {
+            s.observedTimeoutMs += (maxTimeoutMs - s.observedTimeoutMs + 1) / 2;
+            return;
+        }
+        s.observedTimeoutMs = TimeUnit.NANOSECONDS.toMillis(BOUNDS[p99]) * FACTOR;
+    }
+
+    private static long[] buildBounds() {
+        List<Long> bounds = new ArrayList<>();
+        double bound = TimeUnit.MILLISECONDS.toNanos(1);
+        while (bound < TimeUnit.SECONDS.toNanos(10)) {
+            bounds.add((long) bound);
+            bound *= 1.25;
+        }
+        bounds.add((long) bound);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static final class State {
+        final AtomicInteger mode = new AtomicInteger(CLOSED);
+        final AtomicInteger failures = new AtomicInteger();
+        // Aberto: instante em que abriu; meio aberto: instante da chamada de teste
+        final AtomicLong since = new AtomicLong(System.nanoTime());
+        final AtomicLongArray window = new AtomicLongArray(BOUNDS.length);
+        final AtomicLong nextWindow = new AtomicLong(System.nanoTime() + WINDOW_NANOS);
+        volatile long observedTimeoutMs;
+        volatile int minResponseTimeMs;
+
+        State(int initialTimeoutMs) {
+            this.observedTimeoutMs = initialTimeoutMs;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package scaputo88.com.example.rinha_25.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import scaputo88.com.example.rinha_25.configuration.Env;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limita as chamadas simultâneas a cada processor ({@code PP_MAX_CONCURRENCY}). Com virtual threads
+ * o número de pagamentos em voo deixa de ser limitado pelo pool, então o limite fica aqui.
+ */
+@Component
+public class ProcessorConcurrencyLimiter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessorConcurrencyLimiter.class);
+
+    private final Map<ProcessorType, Semaphore> permits = new EnumMap<>(ProcessorType.class);
+    private final long acquireTimeoutMs;
+
+    public ProcessorConcurrencyLimiter() {
+        int maxConcurrency = Env.integer("PP_MAX_CONCURRENCY", 256);
+        this.acquireTimeoutMs = Env.integer("PP_ACQUIRE_TIMEOUT_MS", Env.integer("PP_TIMEOUT_MS", 250));
+        for (ProcessorType type : ProcessorType.values()) {
+            permits.put(type, new Semaphore(maxConcurrency));
+        }
+        log.info("ProcessorConcurrencyLimiter inicializado: maxConcurrency={} por processor, acquireTimeoutMs={}",
+                maxConcurrency, acquireTimeoutMs);
+    }
+
+    /**
+     * @return false se não houve vaga dentro de {@code PP_ACQUIRE_TIMEOUT_MS}
+     */
+    public boolean acquire(ProcessorType type) {
+        try {
+            return permits.get(type).tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    public void release(ProcessorType type) {
+        permits.get(type).release();
+    }
+
+    public int available(ProcessorType type) {
+        return permits.get(type).availablePermits();
+    }
+}
@@ -0,0 +1,81 @@
+package scaputo88.com.example.rinha_25.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import scaputo88.com.example.rinha_25.configuration.Env;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+
+/**
+ * Escolhe o processor antes do envio a partir do {@link HealthCheckService} (cache de
+ * {@code /payments/service-health}) e do {@link ProcessorCircuitBreaker} (falhas observadas nas
+ * próprias chamadas), evitando gastar o timeout inteiro num processor que já se sabe estar falhando.
+ * Um processor devolvido por {@link #route()} ou {@link #alternative} já teve a chamada reservada no circuito.
+ */
+@Component
+public class ProcessorRouter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProcessorRouter.class);
+
+    private final HealthCheckService healthCheckService;
+    private final ProcessorCircuitBreaker breaker;
+    private final int slowThresholdMs;
+
+    public ProcessorRouter(HealthCheckService healthCheckService, ProcessorCircuitBreaker breaker) {
+        this.healthCheckService = healthCheckService;
+        this.breaker = breaker;
+        this.slowThresholdMs = Env.integer("ROUTER_SLOW_THRESHOLD_MS", Env.integer("PP_TIMEOUT_MS", 250));
+        log.info("ProcessorRouter inicializado: slowThresholdMs={}", slowThresholdMs);
+    }
+
+    /**
+     * @return o processor a usar, ou {@code null} se ambos estão falhando (o pagamento deve aguardar)
+     */
+    public ProcessorType route() {
+        ProcessorClient.HealthStatus def = healthCheckService.getStatus(ProcessorType.DEFAULT);
+        if (def.healthy() && def.minResponseTime() <= slowThresholdMs && breaker.tryAcquire(ProcessorType.DEFAULT)) {
+            return ProcessorType.DEFAULT;
+        }
+
+        ProcessorClient.HealthStatus fb = healthCheckService.getStatus(ProcessorType.FALLBACK);
+        boolean defaultUsable = def.healthy() && breaker.isAvailable(ProcessorType.DEFAULT);
+        // Fallback cobra taxa maior: só compensa se o default falha ou está mais lento que o limite
+        if (fb.healthy() && (!defaultUsable || fb.minResponseTime() < def.minResponseTime())
+                && breaker.tryAcquire(ProcessorType.FALLBACK)) {
+            return ProcessorType.FALLBACK;
+        }
+        if (def.healthy() && breaker.tryAcquire(ProcessorType.DEFAULT)) {
+            return ProcessorType.DEFAULT;
+        }
+        return null;
+    }
+
+    /**
+     * Reserva uma chamada em {@code type}, se ele estiver saudável e com o circuito liberado (uso: retentativa
+     * presa ao processor que deu timeout).
+     */
+    public boolean acquire(ProcessorType type) {
+        return healthCheckService.getStatus(type).healthy() && breaker.tryAcquire(type);
+    }
+
+    /**
+     * Há algum processor saudável e com o circuito liberado? Não reserva chamada (uso: decidir se vale
+     * drenar as retentativas).
+     */
+    public boolean hasAvailable() {
+        for (ProcessorType type : ProcessorType.values()) {
+            if (healthCheckService.getStatus(type).healthy() && breaker.isAvailable(type)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return o outro processor se ele não estiver reportando falha nem com o circuito aberto; {@code null} caso contrário
+     */
+    public ProcessorType alternative(ProcessorType failed) {
+        ProcessorType other = (failed == ProcessorType.DEFAULT) ? ProcessorType.FALLBACK : ProcessorType.DEFAULT;
+        return healthCheckService.getStatus(other).healthy() && breaker.tryAcquire(other) ? other : null;
+    }
+}
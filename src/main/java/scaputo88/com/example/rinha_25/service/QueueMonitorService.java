@@ -1,23 +1,67 @@
 package scaputo88.com.example.rinha_25.service;
 
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+
 
 @Service
 public class QueueMonitorService {
 
     private final PaymentQueue paymentQueue;
+    private final PaymentRetryQueue retryQueue;
+    private final PaymentStreamQueue streamQueue;
 
-    public QueueMonitorService(PaymentQueue paymentQueue) {
+    public QueueMonitorService(PaymentQueue paymentQueue, PaymentRetryQueue retryQueue,
+                               Optional<PaymentStreamQueue> streamQueue, MeterRegistry registry) {
         this.paymentQueue = paymentQueue;
+        this.retryQueue = retryQueue;
+        this.streamQueue = streamQueue.orElse(null);
+
+        // Lidos só quando o Prometheus coleta; nada no caminho do pagamento
+        Gauge.builder("payments.queue.size", paymentQueue, PaymentQueue::getQueueSize)
+                .description("Pagamentos aguardando um worker")
+                .register(registry);
+        Gauge.builder("payments.queue.active", paymentQueue, PaymentQueue::getActiveCount)
+                .description("Workers processando pagamentos")
+                .register(registry);
+        FunctionCounter.builder("payments.queue.rejected", paymentQueue, PaymentQueue::getRejectedCount)
+                .description("Pagamentos rejeitados com a fila cheia")
+                .register(registry);
+        Gauge.builder("payments.retry.pending", retryQueue, PaymentRetryQueue::size)
+                .description("Pagamentos aguardando retentativa")
+                .register(registry);
+        streamQueue.ifPresent(stream -> Gauge.builder("payments.stream.pending", stream, PaymentStreamQueue::pending)
+                .description("Entradas do stream entregues a um consumer e ainda não confirmadas")
+                .register(registry));
     }
 
     public QueueStatus snapshot() {
-        return new QueueStatus(paymentQueue.getQueueSize());
+        int queueSize = paymentQueue.getQueueSize();
+        int active = paymentQueue.getActiveCount();
+        return new QueueStatus(
+                queueSize,
+                active,
+                queueSize + active,
+                paymentQueue.getQueueCapacity(),
+                paymentQueue.getWorkers(),
+                paymentQueue.getRejectedCount(),
+                retryQueue.size(),
+                streamQueue != null ? streamQueue.pending() : 0L
+        );
     }
 
     public static record QueueStatus(
-            int queueSize
+            int queueSize,
+            int activeWorkers,
+            int inFlight,
+            int queueCapacity,
+            int workers,
+            long rejected,
+            long retryPending,
+            long streamPending
     ) {}
 }
-
@@ -0,0 +1,96 @@
+package scaputo88.com.example.rinha_25.service;
+
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import scaputo88.com.example.rinha_25.configuration.RedisConfig;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Estado da conexão com o Redis: cliente/transporte em uso, estatísticas dos pools (lidas dos
+ * MBeans do commons-pool2) e {@code connected_clients} visto pelo servidor.
+ */
+@Service
+public class RedisStatusService {
+
+    private final RedisConnectionFactory connectionFactory;
+    private final RedisTemplate<String, String> redisTemplate;
+
+    public RedisStatusService(RedisConnectionFactory connectionFactory, RedisTemplate<String, String> redisTemplate) {
+        this.connectionFactory = connectionFactory;
+        this.redisTemplate = redisTemplate;
+    }
+
+    public RedisStatus snapshot() {
+        String client;
+        String transport;
+        if (connectionFactory instanceof LettuceConnectionFactory lettuce) {
+            client = "lettuce";
+            transport = lettuce.getSocketConfiguration() != null ? "unix" : "tcp";
+        } else {
+            client = "jedis";
+            transport = "tcp";
+        }
+        return new RedisStatus(client, transport, pools(), connectedClients());
+    }
+
+    private static List<PoolStatus> pools() {
+        List<PoolStatus> pools = new ArrayList<>();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName pattern = new ObjectName("org.apache.commons.pool2:type=GenericObjectPool,name="
+                    + RedisConfig.POOL_JMX_PREFIX + "*");
+            for (ObjectName name : server.queryNames(pattern, null)) {
+                pools.add(new PoolStatus(
+                        name.getKeyProperty("name"),
+                        ((Number) server.getAttribute(name, "MaxTotal")).intValue(),
+                        ((Number) server.getAttribute(name, "NumActive")).intValue(),
+                        ((Number) server.getAttribute(name, "NumIdle")).intValue(),
+                        ((Number) server.getAttribute(name, "NumWaiters")).intValue(),
+                        ((Number) server.getAttribute(name, "CreatedCount")).longValue(),
+                        ((Number) server.getAttribute(name, "BorrowedCount")).longValue(),
+                        ((Number) server.getAttribute(name, "MeanBorrowWaitTimeMillis")).longValue()
+                ));
+            }
+        } catch (Exception e) {
+            // Sem JMX não há estatística de pool; o resto do status continua válido
+        }
+        return pools;
+    }
+
+    private long connectedClients() {
+        try {
+            Properties info = redisTemplate.execute((RedisCallback<Properties>) c -> c.serverCommands().info("clients"));
+            String value = info == null ? null : info.getProperty("connected_clients");
+            return value == null ? -1L : Long.parseLong(value.trim());
+        } catch (Exception e) {
+            return -1L;
+        }
+    }
+
+    public record PoolStatus(
+            String name,
+            int maxTotal,
+            int active,
+            int idle,
+            int waiters,
+            long created,
+            long borrowed,
+            long meanBorrowWaitMs
+    ) {}
+
+    public record RedisStatus(
+            String client,
+            String transport,
+            List<PoolStatus> pools,
+            long connectedClients
+    ) {}
+}
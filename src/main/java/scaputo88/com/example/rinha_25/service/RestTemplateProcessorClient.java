@@ -0,0 +1,198 @@
+package scaputo88.com.example.rinha_25.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+import scaputo88.com.example.rinha_25.configuration.Env;
+import scaputo88.com.example.rinha_25.model.Money;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+import scaputo88.com.example.rinha_25.service.ProcessorClient.Outcome;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+@Component
+@ConditionalOnProperty(name = "pp.client", havingValue = "rest", matchIfMissing = true)
+public class RestTemplateProcessorClient implements ProcessorClient {
+
+    private static final Logger log = LoggerFactory.getLogger(RestTemplateProcessorClient.class);
+
+    private final RestTemplate restTemplate;
+    // POST /payments: um RestTemplate por processor, com o timeout adaptativo do ProcessorCircuitBreaker
+    private final Map<ProcessorType, RestTemplate> paymentTemplates = new EnumMap<>(ProcessorType.class);
+    private final String defaultBaseUrl;
+    private final String fallbackBaseUrl;
+    private final String adminToken;
+    private final ProcessorConcurrencyLimiter limiter;
+    private final PaymentMetrics metrics;
+    private final ProcessorCircuitBreaker breaker;
+
+    // URLs via placeholder: a variável de ambiente continua valendo, e propriedades de linha de comando
+    // (ex.: harness de carga) também
+    public RestTemplateProcessorClient(ProcessorConcurrencyLimiter limiter,
+                                       PaymentMetrics metrics,
+                                       ProcessorCircuitBreaker breaker,
+                                       @Value("${PAYMENT_PROCESSOR_URL_DEFAULT:http://payment-processor-default:8080}") String defaultBaseUrl,
+                                       @Value("${PAYMENT_PROCESSOR_URL_FALLBACK:http://payment-processor-fallback:8080}") String fallbackBaseUrl) {
+        this.limiter = limiter;
+        this.metrics = metrics;
+        this.breaker = breaker;
+        int timeoutMs = Env.integer("PP_TIMEOUT_MS", 250);
+        this.restTemplate = buildRestTemplate(timeoutMs);
+        for (ProcessorType type : ProcessorType.values()) {
+            paymentTemplates.put(type, buildPaymentTemplate(type));
+        }
+
+        this.defaultBaseUrl  = defaultBaseUrl.trim();
+        this.fallbackBaseUrl = fallbackBaseUrl.trim();
+        this.adminToken      = Env.string("PP_ADMIN_TOKEN", "123");
+
+        log.info("RestTemplateProcessorClient inicializado: defaultBaseUrl={}, fallbackBaseUrl={}, timeout={}ms",
+                defaultBaseUrl, fallbackBaseUrl, timeoutMs);
+    }
+
+    private RestTemplate buildRestTemplate(int timeoutMs) {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory();
+        factory.setConnectTimeout(timeoutMs);
+        factory.setReadTimeout(timeoutMs);
+        return new RestTemplate(factory);
+    }
+
+    // O SimpleClientHttpRequestFactory abre uma HttpURLConnection por requisição: o timeout é lido a cada uma
+    private RestTemplate buildPaymentTemplate(ProcessorType type) {
+        SimpleClientHttpRequestFactory factory = new SimpleClientHttpRequestFactory() {
+            @Override
+            protected void prepareConnection(HttpURLConnection connection, String httpMethod) throws IOException {
+                super.prepareConnection(connection, httpMethod);
+                int timeoutMs = breaker.timeoutMs(type);
+                connection.setConnectTimeout(timeoutMs);
+                connection.setReadTimeout(timeoutMs);
+            }
+        };
+        return new RestTemplate(factory);
+    }
+
+    private String baseUrl(String processor) {
+        return "fallback".equalsIgnoreCase(processor) ? fallbackBaseUrl : defaultBaseUrl;
+    }
+
+    @Override
+    public Outcome sendPayment(String processor, UUID correlationId, long amountCents, Instant requestedAt) {
+        ProcessorType type = "fallback".equalsIgnoreCase(processor) ? ProcessorType.FALLBACK : ProcessorType.DEFAULT;
+        if (!limiter.acquire(type)) {
+            metrics.processorLimited(type);
+            log.warn("Limite de chamadas simultâneas para {} atingido", processor);
+            return Outcome.FAILURE;
+        }
+        long start = System.nanoTime();
+        try {
+            Outcome outcome = doSendPayment(type, correlationId, amountCents, requestedAt);
+            long elapsed = System.nanoTime() - start;
+            metrics.recordProcessorCall(type, outcome, elapsed);
+            breaker.onResult(type, outcome, elapsed);
+            return outcome;
+        } finally {
+            limiter.release(type);
+        }
+    }
+
+    private Outcome doSendPayment(ProcessorType type, UUID correlationId, long amountCents, Instant requestedAt) {
+        String url = baseUrl(type.value) + "/payments";
+        Map<String, Object> body = Map.of(
+                "correlationId", correlationId,
+                "amount", Money.toBigDecimal(amountCents),
+                "requestedAt", requestedAt.toString()
+        );
+        try {
+            ResponseEntity<String> resp = paymentTemplates.get(type).postForEntity(url, body, String.class);
+            return resp.getStatusCode().is2xxSuccessful() ? Outcome.SUCCESS : Outcome.FAILURE;
+        } catch (HttpClientErrorException e) {
+            log.warn("Pagamento recusado por {}: {}", type.value, e.getMessage());
+            return Outcome.REJECTED;
+        } catch (RestClientException e) {
+            log.warn("Falha ao enviar pagamento para {}: {}", type.value, e.getMessage());
+            return outcomeOf(e.getRootCause());
+        }
+    }
+
+    /**
+     * Só um timeout de leitura vira {@link Outcome#TIMEOUT}: o pedido já foi escrito e o processor pode tê-lo
+     * aceitado. Conexão recusada ou que não abriu a tempo ({@code Connect timed out} da {@link HttpURLConnection})
+     * é {@link Outcome#FAILURE}, porque nada foi enviado.
+     */
+    static Outcome outcomeOf(Throwable rootCause) {
+        if (rootCause instanceof SocketTimeoutException e
+                && (e.getMessage() == null || !e.getMessage().toLowerCase(Locale.ROOT).startsWith("connect"))) {
+            return Outcome.TIMEOUT;
+        }
+        return Outcome.FAILURE;
+    }
+
+    @Override
+    public HealthStatus checkHealth(String processor) {
+        String url = baseUrl(processor) + "/payments/service-health";
+        try {
+            ResponseEntity<Map> resp = restTemplate.getForEntity(url, Map.class);
+            if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
+                boolean failing = Boolean.TRUE.equals(resp.getBody().get("failing"));
+                int minResponseTime = resp.getBody().get("minResponseTime") != null
+                        ? ((Number) resp.getBody().get("minResponseTime")).intValue()
+                        : Integer.MAX_VALUE;
+                return new HealthStatus(!failing, minResponseTime);
+            }
+        } catch (RestClientException e) {
+            log.warn("Falha ao consultar saúde de {}: {}", processor, e.getMessage());
+        }
+        return new HealthStatus(false, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public AdminSummary getAdminSummary(String processor, String from, String to) {
+        StringBuilder uri = new StringBuilder(baseUrl(processor)).append("/admin/payments-summary");
+        boolean hasQuery = false;
+        if (from != null && !from.isBlank()) {
+            uri.append("?from=").append(from);
+            hasQuery = true;
+        }
+        if (to != null && !to.isBlank()) {
+            uri.append(hasQuery ? "&" : "?").append("to=").append(to);
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("X-Rinha-Token", adminToken);
+        HttpEntity<Void> entity = new HttpEntity<>(headers);
+
+        try {
+            ResponseEntity<Map> resp = restTemplate.exchange(uri.toString(), HttpMethod.GET, entity, Map.class);
+            if (resp.getStatusCode().is2xxSuccessful() && resp.getBody() != null) {
+                long totalRequests = resp.getBody().get("totalRequests") != null
+                        ? ((Number) resp.getBody().get("totalRequests")).longValue()
+                        : 0L;
+                BigDecimal totalAmount = resp.getBody().get("totalAmount") != null
+                        ? new BigDecimal(String.valueOf(resp.getBody().get("totalAmount")))
+                        : BigDecimal.ZERO;
+                return new AdminSummary(totalRequests, totalAmount);
+            }
+        } catch (RestClientException e) {
+            log.warn("Falha ao obter resumo admin de {}: {}", processor, e.getMessage());
+        }
+        return new AdminSummary(0L, BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,197 @@
+package scaputo88.com.example.rinha_25.service;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Conjunto limitado de UUIDs em endereçamento aberto (sondagem linear) sobre {@code long[]}: cada UUID
+ * ocupa dois longs, sem objeto por entrada. A remoção usa deslocamento para trás, sem lápides.
+ * <p>
+ * O hash escolhe uma de {@value #STRIPES} faixas, cada uma com o próprio monitor, para threads de
+ * requisição e workers não disputarem um lock só. Cada faixa tem duas gerações de tamanho fixo: quando a
+ * atual enche, a anterior é descartada e a atual passa a ser a anterior. A memória fica em
+ * {@code 2 x capacidade} slots alocados na construção, e o conjunto lembra no mínimo os
+ * {@code capacity / 2} UUIDs mais recentes (metade da geração atual, em cada faixa) e no máximo
+ * {@code capacity}; os mais antigos vão sendo esquecidos.
+ * <p>
+ * O par (0, 0) marca slot vazio, então o UUID nulo é guardado à parte e nunca expira.
+ */
+final class UuidSet {
+
+    static final int STRIPES = 16;
+    private static final float MAX_LOAD = 0.5f;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicBoolean containsZero = new AtomicBoolean();
+
+    /** @param capacity UUIDs por geração, somando as faixas (arredondado para potência de dois) */
+    UuidSet(int capacity) {
+        int slots = 16;
+        while (slots * MAX_LOAD * STRIPES < capacity && slots < (1 << 24)) {
+            slots <<= 1;
+        }
+        for (int s = 0; s < STRIPES; s++) {
+            stripes[s] = new Stripe(slots);
+        }
+    }
+
+    /** @return true se o UUID não estava no conjunto */
+    boolean add(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            return containsZero.compareAndSet(false, true);
+        }
+        long h = hash(msb, lsb);
+        Stripe stripe = stripe(h);
+        synchronized (stripe) {
+            return stripe.add(msb, lsb, (int) h);
+        }
+    }
+
+    /** @return true se o UUID estava no conjunto */
+    boolean remove(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            return containsZero.compareAndSet(true, false);
+        }
+        long h = hash(msb, lsb);
+        Stripe stripe = stripe(h);
+        synchronized (stripe) {
+            boolean current = stripe.remove(stripe.current, msb, lsb, (int) h);
+            if (current) {
+                stripe.size--;
+            }
+            return stripe.remove(stripe.previous, msb, lsb, (int) h) || current;
+        }
+    }
+
+    boolean contains(UUID id) {
+        long msb = id.getMostSignificantBits();
+        long lsb = id.getLeastSignificantBits();
+        if (msb == 0 && lsb == 0) {
+            return containsZero.get();
+        }
+        long h = hash(msb, lsb);
+        Stripe stripe = stripe(h);
+        synchronized (stripe) {
+            return stripe.find(stripe.current, msb, lsb, (int) h) >= 0
+                    || stripe.find(stripe.previous, msb, lsb, (int) h) >= 0;
+        }
+    }
+
+    void clear() {
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Arrays.fill(stripe.current, 0L);
+                Arrays.fill(stripe.previous, 0L);
+                stripe.size = 0;
+            }
+        }
+        containsZero.set(false);
+    }
+
+    /** Maior número de UUIDs que o conjunto pode lembrar ao mesmo tempo. */
+    int capacity() {
+        return 2 * STRIPES * stripes[0].limit;
+    }
+
+    private Stripe stripe(long h) {
+        return stripes[(int) (h >>> 32) & (STRIPES - 1)];
+    }
+
+    // Finalizador do MurmurHash3: os UUIDs v4 já são aleatórios, mas não custa espalhar. Os 32 bits
+    // de cima escolhem a faixa, os de baixo o slot
+    private static long hash(long msb, long lsb) {
+        long h = msb ^ Long.rotateLeft(lsb, 32);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /** Uma faixa: geração atual (que recebe os adds) e anterior (só consulta e remoção). */
+    private static final class Stripe {
+
+        private final int mask;
+        private final int limit;
+        private long[] current;
+        private long[] previous;
+        private int size;
+
+        Stripe(int slots) {
+            this.mask = slots - 1;
+            this.limit = (int) (slots * MAX_LOAD);
+            this.current = new long[slots * 2];
+            this.previous = new long[slots * 2];
+        }
+
+        boolean add(long msb, long lsb, int h) {
+            if (find(previous, msb, lsb, h) >= 0) {
+                return false;
+            }
+            int i = h & mask;
+            while (true) {
+                long m = current[2 * i], l = current[2 * i + 1];
+                if (m == 0 && l == 0) break;
+                if (m == msb && l == lsb) return false;
+                i = (i + 1) & mask;
+            }
+            if (size >= limit) {
+                rotate();
+                i = h & mask;
+            }
+            current[2 * i] = msb;
+            current[2 * i + 1] = lsb;
+            size++;
+            return true;
+        }
+
+        // Descarta a geração anterior e reaproveita o array dela como a nova atual, vazia
+        private void rotate() {
+            long[] discarded = previous;
+            previous = current;
+            Arrays.fill(discarded, 0L);
+            current = discarded;
+            size = 0;
+        }
+
+        int find(long[] slots, long msb, long lsb, int h) {
+            int i = h & mask;
+            while (true) {
+                long m = slots[2 * i], l = slots[2 * i + 1];
+                if (m == 0 && l == 0) return -1;
+                if (m == msb && l == lsb) return i;
+                i = (i + 1) & mask;
+            }
+        }
+
+        boolean remove(long[] slots, long msb, long lsb, int h) {
+            int i = find(slots, msb, lsb, h);
+            if (i < 0) {
+                return false;
+            }
+            // Puxa para trás as entradas seguintes do mesmo cluster que ficariam inalcançáveis
+            int hole = i;
+            int j = i;
+            while (true) {
+                j = (j + 1) & mask;
+                long m = slots[2 * j], l = slots[2 * j + 1];
+                if (m == 0 && l == 0) break;
+                int home = (int) hash(m, l) & mask;
+                if (((j - home) & mask) >= ((j - hole) & mask)) {
+                    slots[2 * hole] = m;
+                    slots[2 * hole + 1] = l;
+                    hole = j;
+                }
+            }
+            slots[2 * hole] = 0;
+            slots[2 * hole + 1] = 0;
+            return true;
+        }
+    }
+}
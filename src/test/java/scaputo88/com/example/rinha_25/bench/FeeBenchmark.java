@@ -0,0 +1,74 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scaputo88.com.example.rinha_25.model.Money;
+import scaputo88.com.example.rinha_25.model.Payment;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Taxa e montagem do {@link Payment} como no {@code PaymentService.process}: centavos
+ * ({@link Money#feeCents}) contra o cálculo original em {@link BigDecimal}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeeBenchmark {
+
+    private static final int AMOUNTS = 1024;
+    private static final BigDecimal DEFAULT_RATE = BigDecimal.valueOf(0.05);
+    private static final BigDecimal FALLBACK_RATE = BigDecimal.valueOf(0.15);
+
+    private final UUID correlationId = UUID.randomUUID();
+    private final Instant now = Instant.now();
+    private long[] cents;
+    private BigDecimal[] decimals;
+    private int next;
+
+    @Setup
+    public void setup() {
+        cents = new long[AMOUNTS];
+        decimals = new BigDecimal[AMOUNTS];
+        for (int i = 0; i < AMOUNTS; i++) {
+            cents[i] = 100 + i * 37L;
+            decimals[i] = Money.toBigDecimal(cents[i]);
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (AMOUNTS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public Payment cents() {
+        int i = nextIndex();
+        ProcessorType processor = (i & 1) == 0 ? ProcessorType.DEFAULT : ProcessorType.FALLBACK;
+        long fee = Money.feeCents(cents[i], processor.feePercent);
+        return new Payment(correlationId, processor.value, cents[i], fee, now, processor == ProcessorType.FALLBACK);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        int i = nextIndex();
+        BigDecimal rate = (i & 1) == 0 ? DEFAULT_RATE : FALLBACK_RATE;
+        return decimals[i].multiply(rate).setScale(2, RoundingMode.DOWN);
+    }
+}
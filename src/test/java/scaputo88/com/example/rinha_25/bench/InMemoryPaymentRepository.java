@@ -0,0 +1,60 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import scaputo88.com.example.rinha_25.model.Payment;
+import scaputo88.com.example.rinha_25.model.PaymentSummary;
+import scaputo88.com.example.rinha_25.repository.PaymentRepository;
+
+import java.time.Instant;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** {@link PaymentRepository} em memória no lugar do Redis: guarda os pagamentos e soma no resumo. */
+public class InMemoryPaymentRepository implements PaymentRepository {
+
+    private final Queue<Payment> payments = new ConcurrentLinkedQueue<>();
+    private final AtomicLong version = new AtomicLong();
+
+    @Override
+    public void save(Payment payment) {
+        payments.add(payment);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public PaymentSummary getSummary(Instant from, Instant to) {
+        long defAmount = 0, defFee = 0, defRequests = 0;
+        long fbAmount = 0, fbFee = 0, fbRequests = 0;
+        for (Payment p : payments) {
+            Instant ts = p.timestamp();
+            if ((from != null && ts.isBefore(from)) || (to != null && ts.isAfter(to))) {
+                continue;
+            }
+            if (p.usedFallback()) {
+                fbRequests++;
+                fbAmount += p.amountCents();
+                fbFee += p.feeCents();
+            } else {
+                defRequests++;
+                defAmount += p.amountCents();
+                defFee += p.feeCents();
+            }
+        }
+        return new PaymentSummary(defAmount, defFee, defRequests, fbAmount, fbFee, fbRequests);
+    }
+
+    @Override
+    public long dataVersion() {
+        return version.get();
+    }
+
+    @Override
+    public void purgePayments() {
+        payments.clear();
+        version.incrementAndGet();
+    }
+
+    public int size() {
+        return payments.size();
+    }
+}
@@ -0,0 +1,362 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.support.GenericApplicationContext;
+import scaputo88.com.example.rinha_25.Rinha25Application;
+import scaputo88.com.example.rinha_25.repository.PaymentRepository;
+import scaputo88.com.example.rinha_25.repository.RedisDedupeRepository;
+import scaputo88.com.example.rinha_25.repository.RedisHealthRepository;
+import scaputo88.com.example.rinha_25.repository.RedisRetryRepository;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Teste de carga sem docker-compose: sobe dois {@link StubProcessorServer} (default e fallback), a
+ * aplicação na mesma JVM com armazenamento em memória no lugar do Redis, dispara {@code POST /payments}
+ * numa taxa fixa (malha aberta: a latência conta a partir do instante planejado de envio) e consulta
+ * {@code /payments-summary} periodicamente. No fim, espera a fila esvaziar e confere o resumo da API
+ * contra o {@code /admin/payments-summary} dos stubs.
+ * <p>
+ * Argumentos {@code chave=valor} (ver {@link Options}); os que começam com {@code --} vão para a
+ * aplicação como propriedades. {@code WORKERS}, {@code PP_TIMEOUT_MS} etc. continuam vindo do ambiente:
+ * <pre>
+ * mvn -Pload test-compile exec:exec -Dload.args="rps=2000 duration=30 default-flip-sec=10 --pp.client=http"
+ * </pre>
+ */
+public final class LoadHarness {
+
+    // Valores dos resumos comparados como BigDecimal exato, não double
+    private static final ObjectMapper JSON = new ObjectMapper().enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        try (StubProcessorServer defaultProcessor = new StubProcessorServer(options.defaultLatencyMs, options.defaultJitterMs,
+                     options.defaultFailureRate, options.defaultFlipSec * 1000L);
+             StubProcessorServer fallbackProcessor = new StubProcessorServer(options.fallbackLatencyMs, options.fallbackJitterMs,
+                     options.fallbackFailureRate, options.fallbackFlipSec * 1000L);
+             ConfigurableApplicationContext app = startApp(options, defaultProcessor, fallbackProcessor)) {
+
+            String baseUrl = "http://127.0.0.1:" + options.port;
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(2))
+                    .executor(Executors.newVirtualThreadPerTaskExecutor())
+                    .build();
+            send(client, HttpRequest.newBuilder(URI.create(baseUrl + "/purge-payments"))
+                    .POST(HttpRequest.BodyPublishers.noBody()).build());
+
+            System.out.printf("%nCarga: %d req/s por %ds contra %s (processors: default %dms, fallback %dms)%n",
+                    options.rps, options.durationSec, baseUrl, options.defaultLatencyMs, options.fallbackLatencyMs);
+
+            Recorder payments = new Recorder((int) Math.min(Integer.MAX_VALUE - 8, (long) options.rps * options.durationSec + 1));
+            Recorder summaries = new Recorder(options.durationSec * 1000 / Math.max(1, options.summaryIntervalMs) + 16);
+            long startNanos = System.nanoTime();
+
+            Thread poller = Thread.ofPlatform().daemon().name("load-summary").start(
+                    () -> pollSummary(client, baseUrl, options, summaries, startNanos));
+            drive(client, baseUrl, options, payments, startNanos);
+            long elapsedNanos = System.nanoTime() - startNanos;
+            poller.join();
+            payments.awaitCompletion(Duration.ofSeconds(10));
+
+            boolean drained = awaitDrained(client, baseUrl, Duration.ofSeconds(options.drainSec));
+            JsonNode summary = JSON.readTree(send(client, HttpRequest.newBuilder(URI.create(baseUrl + "/payments-summary")).GET().build()).body());
+            JsonNode stubDefault = adminSummary(client, defaultProcessor);
+            JsonNode stubFallback = adminSummary(client, fallbackProcessor);
+
+            report(options, payments, summaries, elapsedNanos, drained, summary, stubDefault, stubFallback,
+                    defaultProcessor, fallbackProcessor);
+        }
+    }
+
+    private static ConfigurableApplicationContext startApp(Options options, StubProcessorServer defaultProcessor,
+                                                           StubProcessorServer fallbackProcessor) {
+        List<String> appArgs = new ArrayList<>(List.of(
+                "--server.port=" + options.port,
+                "--management.server.port=-1",
+                "--PAYMENT_PROCESSOR_URL_DEFAULT=" + defaultProcessor.baseUrl(),
+                "--PAYMENT_PROCESSOR_URL_FALLBACK=" + fallbackProcessor.baseUrl(),
+                "--redis.socket.wait-ms=0",
+                "--payments.local-shard.enabled=false",
+                "--logging.level.root=WARN"));
+        appArgs.addAll(options.appArgs);
+
+        SpringApplication application = new SpringApplication(Rinha25Application.class);
+        // Redis trocado por memória: os beans @Primary vencem os repositórios Redis, que ficam sem uso
+        application.addInitializers(context -> {
+            GenericApplicationContext ctx = (GenericApplicationContext) context;
+            ctx.registerBean("inMemoryPaymentRepository", PaymentRepository.class, InMemoryPaymentRepository::new,
+                    bd -> bd.setPrimary(true));
+            ctx.registerBean("inMemoryRetryRepository", RedisRetryRepository.class, LocalPaymentStack.InMemoryRetryRepository::new,
+                    bd -> bd.setPrimary(true));
+            ctx.registerBean("inMemoryDedupeRepository", RedisDedupeRepository.class, LocalPaymentStack.InMemoryDedupeRepository::new,
+                    bd -> bd.setPrimary(true));
+            ctx.registerBean("inMemoryHealthRepository", RedisHealthRepository.class, LocalPaymentStack.InMemoryHealthRepository::new,
+                    bd -> bd.setPrimary(true));
+        });
+        return application.run(appArgs.toArray(String[]::new));
+    }
+
+    // Malha aberta: o i-ésimo envio é planejado para start + i/rps, independente das respostas anteriores
+    private static void drive(HttpClient client, String baseUrl, Options options, Recorder recorder, long startNanos) {
+        URI uri = URI.create(baseUrl + "/payments");
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rps;
+        long durationNanos = TimeUnit.SECONDS.toNanos(options.durationSec);
+        for (long i = 0; ; i++) {
+            long intended = startNanos + i * intervalNanos;
+            if (intended - startNanos >= durationNanos) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String body = "{\"correlationId\":\"" + UUID.randomUUID() + "\",\"amount\":" + options.amount + "}";
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofSeconds(10))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString(body))
+                    .build();
+            recorder.markStarted();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> recorder.record(intended,
+                            response != null ? response.statusCode() : -1));
+        }
+    }
+
+    private static void pollSummary(HttpClient client, String baseUrl, Options options, Recorder recorder, long startNanos) {
+        URI uri = URI.create(baseUrl + "/payments-summary");
+        long durationNanos = TimeUnit.SECONDS.toNanos(options.durationSec);
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(options.summaryIntervalMs);
+        for (long next = startNanos + intervalNanos; next - startNanos < durationNanos; next += intervalNanos) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            recorder.markStarted();
+            int status;
+            try {
+                status = send(client, HttpRequest.newBuilder(uri).GET().build()).statusCode();
+            } catch (Exception e) {
+                status = -1;
+            }
+            recorder.record(next, status);
+        }
+    }
+
+    private static boolean awaitDrained(HttpClient client, String baseUrl, Duration timeout) throws InterruptedException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        URI uri = URI.create(baseUrl + "/queue/status");
+        while (System.nanoTime() < deadline) {
+            try {
+                JsonNode status = JSON.readTree(send(client, HttpRequest.newBuilder(uri).GET().build()).body());
+                if (status.path("queueSize").asInt() == 0 && status.path("inFlight").asInt() == 0
+                        && status.path("retryPending").asLong() == 0) {
+                    return true;
+                }
+            } catch (Exception ignored) {
+                // tenta de novo
+            }
+            Thread.sleep(200);
+        }
+        return false;
+    }
+
+    private static JsonNode adminSummary(HttpClient client, StubProcessorServer processor) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(processor.baseUrl() + "/admin/payments-summary"))
+                .header("X-Rinha-Token", "123").GET().build();
+        return JSON.readTree(send(client, request).body());
+    }
+
+    private static HttpResponse<String> send(HttpClient client, HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void report(Options options, Recorder payments, Recorder summaries, long elapsedNanos, boolean drained,
+                               JsonNode summary, JsonNode stubDefault, JsonNode stubFallback,
+                               StubProcessorServer defaultProcessor, StubProcessorServer fallbackProcessor) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%n== POST /payments ==%n");
+        System.out.printf("enviadas=%d respondidas=%d vazão=%.1f req/s (alvo %d)%n",
+                payments.started(), payments.count(), payments.count() / seconds, options.rps);
+        System.out.printf("status=%s%n", payments.statusCounts());
+        payments.printLatencies();
+
+        System.out.printf("%n== GET /payments-summary (a cada %dms) ==%n", options.summaryIntervalMs);
+        System.out.printf("consultas=%d status=%s%n", summaries.count(), summaries.statusCounts());
+        summaries.printLatencies();
+
+        long apiDefault = summary.path("default").path("totalRequests").asLong();
+        long apiFallback = summary.path("fallback").path("totalRequests").asLong();
+        BigDecimal apiDefaultAmount = summary.path("default").path("totalAmount").decimalValue();
+        BigDecimal apiFallbackAmount = summary.path("fallback").path("totalAmount").decimalValue();
+        long stubDefaultRequests = stubDefault.path("totalRequests").asLong();
+        long stubFallbackRequests = stubFallback.path("totalRequests").asLong();
+        BigDecimal stubDefaultAmount = stubDefault.path("totalAmount").decimalValue();
+        BigDecimal stubFallbackAmount = stubFallback.path("totalAmount").decimalValue();
+
+        long processed = apiDefault + apiFallback;
+        System.out.printf("%n== Processors ==%n");
+        System.out.printf("fila drenada=%s processados=%d fallback=%.2f%%%n", drained, processed,
+                processed > 0 ? 100.0 * apiFallback / processed : 0.0);
+        System.out.printf("falhas injetadas: default=%d fallback=%d; health checks: default=%d fallback=%d%n",
+                defaultProcessor.failures(), fallbackProcessor.failures(),
+                defaultProcessor.healthChecks(), fallbackProcessor.healthChecks());
+
+        boolean consistent = apiDefault == stubDefaultRequests && apiFallback == stubFallbackRequests
+                && apiDefaultAmount.compareTo(stubDefaultAmount) == 0 && apiFallbackAmount.compareTo(stubFallbackAmount) == 0;
+        System.out.printf("%n== Consistência (API x /admin/payments-summary) ==%n");
+        // O Jackson normaliza os BigDecimal (23880.00 vira 2.388E+4); setScale(2) volta ao formato da API
+        System.out.printf("default : api=%d / %s  stub=%d / %s%n", apiDefault, apiDefaultAmount.setScale(2),
+                stubDefaultRequests, stubDefaultAmount.setScale(2));
+        System.out.printf("fallback: api=%d / %s  stub=%d / %s%n", apiFallback, apiFallbackAmount.setScale(2),
+                stubFallbackRequests, stubFallbackAmount.setScale(2));
+        System.out.printf("%s%n", consistent ? "OK" : "INCONSISTENTE");
+    }
+
+    /** Latências (planejado -> resposta) e contagem por status. */
+    static final class Recorder {
+
+        private final long[] latencies;
+        private final AtomicInteger size = new AtomicInteger();
+        private final LongAdder started = new LongAdder();
+        private final LongAdder completed = new LongAdder();
+        private final Map<Integer, LongAdder> statuses = new ConcurrentHashMap<>();
+
+        Recorder(int capacity) {
+            this.latencies = new long[capacity];
+        }
+
+        void markStarted() {
+            started.increment();
+        }
+
+        void record(long intendedNanos, int status) {
+            long latency = System.nanoTime() - intendedNanos;
+            int i = size.getAndIncrement();
+            if (i < latencies.length) {
+                latencies[i] = latency;
+            }
+            statuses.computeIfAbsent(status, k -> new LongAdder()).increment();
+            completed.increment();
+        }
+
+        long started() {
+            return started.sum();
+        }
+
+        long count() {
+            return completed.sum();
+        }
+
+        void awaitCompletion(Duration timeout) throws InterruptedException {
+            long deadline = System.nanoTime() + timeout.toNanos();
+            while (completed.sum() < started.sum() && System.nanoTime() < deadline) {
+                Thread.sleep(50);
+            }
+        }
+
+        Map<Integer, Long> statusCounts() {
+            Map<Integer, Long> counts = new HashMap<>();
+            statuses.forEach((status, n) -> counts.put(status, n.sum()));
+            return counts;
+        }
+
+        void printLatencies() {
+            int n = Math.min(size.get(), latencies.length);
+            if (n == 0) {
+                System.out.println("sem amostras");
+                return;
+            }
+            long[] sorted = Arrays.copyOf(latencies, n);
+            Arrays.sort(sorted);
+            System.out.printf("latência ms: p50=%.2f p99=%.2f p99.9=%.2f max=%.2f%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999), sorted[n - 1] / 1e6);
+        }
+
+        private static double percentile(long[] sorted, double p) {
+            int index = (int) Math.ceil(p * sorted.length) - 1;
+            return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1e6;
+        }
+    }
+
+    /** Argumentos {@code chave=valor}; os que começam com {@code --} são repassados à aplicação. */
+    static final class Options {
+        int rps = 500;
+        int durationSec = 20;
+        String amount = "19.90";
+        int port = 9999;
+        long defaultLatencyMs = 5;
+        long defaultJitterMs = 0;
+        double defaultFailureRate = 0;
+        int defaultFlipSec = 0;
+        long fallbackLatencyMs = 5;
+        long fallbackJitterMs = 0;
+        double fallbackFailureRate = 0;
+        int fallbackFlipSec = 0;
+        int summaryIntervalMs = 1000;
+        int drainSec = 30;
+        final List<String> appArgs = new ArrayList<>();
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (String arg : args) {
+                if (arg.startsWith("--")) {
+                    o.appArgs.add(arg);
+                    continue;
+                }
+                int eq = arg.indexOf('=');
+                if (eq < 0) {
+                    throw new IllegalArgumentException("Argumento inválido (esperado chave=valor): " + arg);
+                }
+                String key = arg.substring(0, eq);
+                String value = arg.substring(eq + 1);
+                switch (key) {
+                    case "rps" -> o.rps = Integer.parseInt(value);
+                    case "duration" -> o.durationSec = Integer.parseInt(value);
+                    case "amount" -> o.amount = new BigDecimal(value).toPlainString();
+                    case "port" -> o.port = Integer.parseInt(value);
+                    case "default-latency-ms" -> o.defaultLatencyMs = Long.parseLong(value);
+                    case "default-jitter-ms" -> o.defaultJitterMs = Long.parseLong(value);
+                    case "default-failure-rate" -> o.defaultFailureRate = Double.parseDouble(value);
+                    case "default-flip-sec" -> o.defaultFlipSec = Integer.parseInt(value);
+                    case "fallback-latency-ms" -> o.fallbackLatencyMs = Long.parseLong(value);
+                    case "fallback-jitter-ms" -> o.fallbackJitterMs = Long.parseLong(value);
+                    case "fallback-failure-rate" -> o.fallbackFailureRate = Double.parseDouble(value);
+                    case "fallback-flip-sec" -> o.fallbackFlipSec = Integer.parseInt(value);
+                    case "summary-interval-ms" -> o.summaryIntervalMs = Integer.parseInt(value);
+                    case "drain-sec" -> o.drainSec = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("Argumento desconhecido: " + key);
+                }
+            }
+            if (o.rps <= 0 || o.durationSec <= 0) {
+                throw new IllegalArgumentException("rps e duration devem ser positivos");
+            }
+            return o;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import scaputo88.com.example.rinha_25.repository.RedisDedupeRepository;
+import scaputo88.com.example.rinha_25.repository.RedisHealthRepository;
+import scaputo88.com.example.rinha_25.repository.RedisRetryRepository;
+import scaputo88.com.example.rinha_25.service.HealthCheckService;
+import scaputo88.com.example.rinha_25.service.PaymentDeduplicator;
+import scaputo88.com.example.rinha_25.service.PaymentMetrics;
+import scaputo88.com.example.rinha_25.service.PaymentQueue;
+import scaputo88.com.example.rinha_25.service.PaymentRetryQueue;
+import scaputo88.com.example.rinha_25.service.PaymentService;
+import scaputo88.com.example.rinha_25.service.ProcessorCircuitBreaker;
+import scaputo88.com.example.rinha_25.service.ProcessorRouter;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link PaymentService} montado sem Spring, sem Redis e sem processors: {@link StubProcessorClient},
+ * {@link InMemoryPaymentRepository} e versões em memória das filas de retentativa e deduplicação e do
+ * health check compartilhado.
+ * Fila e workers são os de produção ({@link PaymentQueue}, configurada pelas mesmas variáveis de ambiente),
+ * assim como as métricas ({@link PaymentMetrics} sobre um registry Prometheus), para o custo de gravá-las entrar na medição.
+ */
+public class LocalPaymentStack implements AutoCloseable {
+
+    public final StubProcessorClient processors;
+    public final InMemoryPaymentRepository repository;
+    public final PaymentQueue queue;
+    public final PaymentRetryQueue retryQueue;
+    public final PaymentService service;
+    private final HealthCheckService health;
+
+    public LocalPaymentStack(long processorLatencyNanos) {
+        this.processors = new StubProcessorClient(processorLatencyNanos);
+        this.repository = new InMemoryPaymentRepository();
+        this.queue = new PaymentQueue();
+        PrometheusMeterRegistry registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        ProcessorCircuitBreaker breaker = new ProcessorCircuitBreaker(registry);
+        this.health = new HealthCheckService(processors, breaker, new InMemoryHealthRepository());
+        ProcessorRouter router = new ProcessorRouter(health, breaker);
+        this.retryQueue = new PaymentRetryQueue(new InMemoryRetryRepository(), router);
+        this.service = new PaymentService(repository, processors, queue, router, retryQueue,
+                new PaymentDeduplicator(new InMemoryDedupeRepository()), new PaymentMetrics(registry), Optional.empty(), Optional.empty(), 1000);
+    }
+
+    /** Espera a fila esvaziar e os workers pararem, ou até {@code timeoutMs}. */
+    public boolean awaitIdle(long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (queue.getQueueSize() > 0 || queue.getActiveCount() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                return false;
+            }
+            Thread.sleep(1);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        retryQueue.shutdown();
+        health.shutdown();
+        queue.close();
+    }
+
+    /** ZSET {@code payments_retry} em memória: entrada -> instante da próxima tentativa. */
+    static class InMemoryRetryRepository extends RedisRetryRepository {
+
+        private final TreeMap<Long, List<String>> due = new TreeMap<>();
+
+        InMemoryRetryRepository() {
+            super(null);
+        }
+
+        @Override
+        public synchronized void schedule(String entry, long dueAtMillis) {
+            due.computeIfAbsent(dueAtMillis, k -> new ArrayList<>()).add(entry);
+        }
+
+        // Sem outra instância para morrer no meio, não há lease: o item sai da fila ao ser retirado
+        @Override
+        public synchronized List<String> claimDue(long nowMillis, int limit, long leaseMs) {
+            List<String> claimed = new ArrayList<>();
+            Iterator<Map.Entry<Long, List<String>>> it = due.headMap(nowMillis, true).entrySet().iterator();
+            while (it.hasNext() && claimed.size() < limit) {
+                List<String> entries = it.next().getValue();
+                while (!entries.isEmpty() && claimed.size() < limit) {
+                    claimed.add(entries.remove(entries.size() - 1));
+                }
+                if (entries.isEmpty()) {
+                    it.remove();
+                }
+            }
+            return claimed;
+        }
+
+        @Override
+        public void ack(String entry) {
+        }
+
+        @Override
+        public synchronized long size() {
+            return due.values().stream().mapToLong(List::size).sum();
+        }
+
+        @Override
+        public synchronized void purge() {
+            due.clear();
+        }
+    }
+
+    /** Lease e resultado do health check em memória (uma instância só: o lease é sempre desta). */
+    static class InMemoryHealthRepository extends RedisHealthRepository {
+
+        private final Map<String, Long> leaseExpiry = new ConcurrentHashMap<>();
+        private final Map<String, String> results = new ConcurrentHashMap<>();
+
+        InMemoryHealthRepository() {
+            super(null);
+        }
+
+        @Override
+        public boolean tryLease(String processor, String owner, long ttlMs) {
+            long now = System.currentTimeMillis();
+            Long expiry = leaseExpiry.get(processor);
+            if (expiry != null && expiry > now) {
+                return false;
+            }
+            leaseExpiry.put(processor, now + ttlMs);
+            return true;
+        }
+
+        @Override
+        public void publish(String processor, String result) {
+            results.put(processor, result);
+        }
+
+        @Override
+        public String read(String processor) {
+            return results.get(processor);
+        }
+    }
+
+    /** SETs {@code payments_seen:<janela>} em memória, sem janelas. */
+    static class InMemoryDedupeRepository extends RedisDedupeRepository {
+
+        private final Set<UUID> seen = ConcurrentHashMap.newKeySet();
+
+        InMemoryDedupeRepository() {
+            super(null, 60_000);
+        }
+
+        @Override
+        public boolean claim(UUID correlationId) {
+            return seen.add(correlationId);
+        }
+
+        @Override
+        public void release(UUID correlationId) {
+            seen.remove(correlationId);
+        }
+
+        @Override
+        public void purge() {
+            seen.clear();
+        }
+    }
+}
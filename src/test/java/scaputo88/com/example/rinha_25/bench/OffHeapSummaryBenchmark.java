@@ -0,0 +1,83 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import scaputo88.com.example.rinha_25.model.Payment;
+import scaputo88.com.example.rinha_25.model.PaymentSummary;
+import scaputo88.com.example.rinha_25.repository.OffHeapPaymentRepository;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resumo do {@link OffHeapPaymentRepository} com o heap do container ({@code -Xmx64m}): intervalo inteiro e
+ * uma janela de 10% no meio. Os pagamentos chegam com até 300ms de atraso, como os workers os gravam.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx64m")
+public class OffHeapSummaryBenchmark {
+
+    private static final long START = Instant.parse("2025-07-01T00:00:00Z").toEpochMilli();
+
+    @Param({"100000", "1000000", "4000000"})
+    public int payments;
+
+    private Path file;
+    private OffHeapPaymentRepository repository;
+    private Instant windowFrom;
+    private Instant windowTo;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        file = Files.createTempFile("offheap-bench", ".dat");
+        Files.delete(file);
+        repository = new OffHeapPaymentRepository(file.toString(), payments);
+        Random random = new Random(42);
+        for (int i = 0; i < payments; i++) {
+            // ~1000 pagamentos/s, cada um gravado com até 300ms de atraso
+            long ts = START + i - random.nextInt(300);
+            boolean fallback = random.nextInt(10) == 0;
+            repository.save(new Payment(new UUID(random.nextLong(), random.nextLong()),
+                    fallback ? "fallback" : "default", 100 + random.nextInt(100_000), 0,
+                    Instant.ofEpochMilli(ts), fallback));
+        }
+        windowFrom = Instant.ofEpochMilli(START + payments * 45L / 100);
+        windowTo = Instant.ofEpochMilli(START + payments * 55L / 100);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        repository.close();
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public PaymentSummary all() {
+        return repository.getSummary(null, null);
+    }
+
+    @Benchmark
+    public PaymentSummary window() {
+        return repository.getSummary(windowFrom, windowTo);
+    }
+}
@@ -0,0 +1,95 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import scaputo88.com.example.rinha_25.model.Money;
+import scaputo88.com.example.rinha_25.repository.PaymentMemberCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Member dos ZSETs de pagamentos: formato binário ({@link PaymentMemberCodec}) contra o texto
+ * legado {@code processor|amount|fee|usedFallback|uuid}, na gravação e na leitura do resumo.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentMemberCodecBenchmark {
+
+    private static final int MEMBERS = 1024;
+
+    private UUID[] ids;
+    private long[] cents;
+    private byte[][] binary;
+    private byte[][] legacy;
+    private int next;
+
+    @Setup
+    public void setup() {
+        ids = new UUID[MEMBERS];
+        cents = new long[MEMBERS];
+        binary = new byte[MEMBERS][];
+        legacy = new byte[MEMBERS][];
+        for (int i = 0; i < MEMBERS; i++) {
+            ids[i] = UUID.randomUUID();
+            cents[i] = 100 + i * 37L;
+            boolean fallback = (i & 1) != 0;
+            binary[i] = PaymentMemberCodec.encode(ids[i], cents[i], fallback);
+            legacy[i] = encodeLegacy(ids[i], cents[i], fallback).getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) & (MEMBERS - 1);
+        return next;
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        int i = nextIndex();
+        return PaymentMemberCodec.encode(ids[i], cents[i], (i & 1) != 0);
+    }
+
+    @Benchmark
+    public byte[] encodeLegacy() {
+        int i = nextIndex();
+        return encodeLegacy(ids[i], cents[i], (i & 1) != 0).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public long decodeBinary() {
+        byte[] member = binary[nextIndex()];
+        long packed = PaymentMemberCodec.packedValue(member);
+        return PaymentMemberCodec.isFallback(packed) ? -PaymentMemberCodec.amountCents(packed) : PaymentMemberCodec.amountCents(packed);
+    }
+
+    @Benchmark
+    public long decodeLegacy() {
+        String[] parts = new String(legacy[nextIndex()], StandardCharsets.UTF_8).split("\\|");
+        long amount = Money.parseCents(parts[1]);
+        return "fallback".equals(parts[0]) ? -amount : amount;
+    }
+
+    private static String encodeLegacy(UUID id, long cents, boolean fallback) {
+        int percent = fallback ? 15 : 5;
+        return String.join("|",
+                fallback ? "fallback" : "default",
+                Money.format(cents),
+                Money.format(Money.feeCents(cents, percent)),
+                Boolean.toString(fallback),
+                id.toString());
+    }
+}
@@ -0,0 +1,60 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import scaputo88.com.example.rinha_25.service.PaymentQueue;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link PaymentQueue#submit} com vários produtores simultâneos (as threads do Undertow) e tasks
+ * vazias: mede só o custo de enfileirar e despachar. A fila lê {@code WORKERS},
+ * {@code QUEUE_CAPACITY} e {@code EXECUTION_MODE} do ambiente, herdado pelo fork do JMH, ex.:
+ * {@code EXECUTION_MODE=virtual mvn -Pjmh test-compile exec:exec -Djmh.args="PaymentQueueBenchmark"}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+public class PaymentQueueBenchmark {
+
+    private final LongAdder executed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final Runnable task = executed::increment;
+    private PaymentQueue queue;
+
+    @Setup
+    public void setup() {
+        queue = new PaymentQueue();
+    }
+
+    @TearDown
+    public void tearDown() {
+        queue.close();
+        System.out.printf("%nexecutadas=%d rejeitadas=%d%n", executed.sum(), rejected.sum());
+    }
+
+    @Benchmark
+    public void submit() {
+        try {
+            queue.submit(task);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+        }
+    }
+}
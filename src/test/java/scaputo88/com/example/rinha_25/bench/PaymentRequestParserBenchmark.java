@@ -0,0 +1,68 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import scaputo88.com.example.rinha_25.model.Money;
+import scaputo88.com.example.rinha_25.model.PaymentCommand;
+import scaputo88.com.example.rinha_25.model.PaymentRequest;
+import scaputo88.com.example.rinha_25.model.PaymentRequestParser;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Corpo do {@code POST /payments}: parser de bytes contra o binding Jackson anterior
+ * ({@link PaymentRequest} + {@code UUID.fromString} + {@link Money#toCents}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PaymentRequestParserBenchmark {
+
+    private static final int BODIES = 1024;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[][] bodies;
+    private int next;
+
+    @Setup
+    public void setup() {
+        bodies = new byte[BODIES][];
+        for (int i = 0; i < BODIES; i++) {
+            String body = "{\"correlationId\":\"" + UUID.randomUUID() + "\",\"amount\":" + (1 + i % 5000) + "." + (10 + i % 90) + "}";
+            bodies[i] = body.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private byte[] nextBody() {
+        next = (next + 1) & (BODIES - 1);
+        return bodies[next];
+    }
+
+    @Benchmark
+    public PaymentCommand byteParser() {
+        return PaymentRequestParser.parse(nextBody());
+    }
+
+    @Benchmark
+    public void jackson(Blackhole bh) throws IOException {
+        PaymentRequest request = objectMapper.readValue(nextBody(), PaymentRequest.class);
+        bh.consume(UUID.fromString(request.getCorrelationId()));
+        bh.consume(Money.toCents(request.getAmount()));
+    }
+}
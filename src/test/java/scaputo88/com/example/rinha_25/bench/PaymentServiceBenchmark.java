@@ -0,0 +1,74 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import scaputo88.com.example.rinha_25.model.PaymentCommand;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caminho completo de um pagamento sobre o {@link LocalPaymentStack}: deduplicação, fila, roteamento,
+ * envio ao processor local, taxa e gravação em memória. Com a fila cheia o {@code processAsync}
+ * bloqueia (backpressure), então a vazão medida é a dos workers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class PaymentServiceBenchmark {
+
+    /** Latência simulada de cada chamada ao processor. */
+    @Param({"0", "1000000"})
+    public long processorLatencyNanos;
+
+    private final AtomicLong nextId = new AtomicLong(1);
+    private LocalPaymentStack stack;
+
+    @Setup
+    public void setup() {
+        stack = new LocalPaymentStack(processorLatencyNanos);
+    }
+
+    // Sem esperar a fila esvaziar entre iterações: ela continua cheia e a medição segue em regime.
+    // Só limpa os correlationIds vistos e os pagamentos gravados, para a memória não crescer.
+    @TearDown(Level.Iteration)
+    public void purge() {
+        stack.service.purgePayments();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        stack.awaitIdle(10_000);
+        System.out.printf("%nprocessados=%d%n",
+                stack.processors.getAdminSummary("default", null, null).totalRequests()
+                        + stack.processors.getAdminSummary("fallback", null, null).totalRequests());
+        stack.close();
+    }
+
+    @Benchmark
+    public boolean processAsync() {
+        long id = nextId.getAndIncrement();
+        try {
+            return stack.service.processAsync(new PaymentCommand(id, ~id, 1990, true));
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+}
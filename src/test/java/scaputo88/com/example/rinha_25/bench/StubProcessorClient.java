@@ -0,0 +1,62 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import scaputo88.com.example.rinha_25.service.ProcessorClient;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Processor local: aceita todo pagamento após {@code latencyNanos}, sempre saudável, e conta o
+ * que recebeu por processor (equivalente ao {@code /admin/payments-summary}).
+ */
+public class StubProcessorClient implements ProcessorClient {
+
+    private final long latencyNanos;
+    private final LongAdder defaultRequests = new LongAdder();
+    private final LongAdder defaultCents = new LongAdder();
+    private final LongAdder fallbackRequests = new LongAdder();
+    private final LongAdder fallbackCents = new LongAdder();
+
+    public StubProcessorClient(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public Outcome sendPayment(String processor, UUID correlationId, long amountCents, Instant requestedAt) {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+        if ("fallback".equals(processor)) {
+            fallbackRequests.increment();
+            fallbackCents.add(amountCents);
+        } else {
+            defaultRequests.increment();
+            defaultCents.add(amountCents);
+        }
+        return Outcome.SUCCESS;
+    }
+
+    @Override
+    public HealthStatus checkHealth(String processor) {
+        return new HealthStatus(true, 0);
+    }
+
+    /** Totais desde o último {@link #reset}; {@code from}/{@code to} são ignorados. */
+    @Override
+    public AdminSummary getAdminSummary(String processor, String from, String to) {
+        boolean fallback = "fallback".equals(processor);
+        long requests = fallback ? fallbackRequests.sum() : defaultRequests.sum();
+        long cents = fallback ? fallbackCents.sum() : defaultCents.sum();
+        return new AdminSummary(requests, BigDecimal.valueOf(cents, 2));
+    }
+
+    public void reset() {
+        defaultRequests.reset();
+        defaultCents.reset();
+        fallbackRequests.reset();
+        fallbackCents.reset();
+    }
+}
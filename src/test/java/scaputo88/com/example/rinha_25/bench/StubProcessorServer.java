@@ -0,0 +1,146 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import scaputo88.com.example.rinha_25.model.Money;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Processor HTTP local com a mesma API do {@code payment-processor} da Rinha:
+ * <ul>
+ *   <li>{@code POST /payments}: responde após {@code latencyMs} (+ até {@code jitterMs}); falha com 500
+ *   em {@code failureRate} das chamadas ou enquanto estiver "fora"; 422 para correlationId repetido;</li>
+ *   <li>{@code GET /payments/service-health}: {@code failing} e {@code minResponseTime = latencyMs};</li>
+ *   <li>{@code GET /admin/payments-summary}: totais aceitos (ignora {@code from}/{@code to});</li>
+ *   <li>{@code POST /admin/purge-payments}.</li>
+ * </ul>
+ * Com {@code flipEveryMs > 0} o processor alterna entre saudável e fora nesse intervalo.
+ */
+public class StubProcessorServer implements AutoCloseable {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final ScheduledExecutorService flipper;
+    private final long latencyMs;
+    private final long jitterMs;
+    private final double failureRate;
+    private volatile boolean failing;
+
+    private final Set<UUID> accepted = ConcurrentHashMap.newKeySet();
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder cents = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder healthChecks = new LongAdder();
+
+    public StubProcessorServer(long latencyMs, long jitterMs, double failureRate, long flipEveryMs) throws IOException {
+        this.latencyMs = latencyMs;
+        this.jitterMs = jitterMs;
+        this.failureRate = failureRate;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        this.server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        this.server.createContext("/payments/service-health", this::health);
+        this.server.createContext("/payments", this::payment);
+        this.server.createContext("/admin/payments-summary", this::summary);
+        this.server.createContext("/admin/purge-payments", this::purge);
+        this.server.start();
+
+        if (flipEveryMs > 0) {
+            this.flipper = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "stub-flip");
+                t.setDaemon(true);
+                return t;
+            });
+            this.flipper.scheduleAtFixedRate(() -> failing = !failing, flipEveryMs, flipEveryMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.flipper = null;
+        }
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    public long failures() {
+        return failures.sum();
+    }
+
+    public long healthChecks() {
+        return healthChecks.sum();
+    }
+
+    private void payment(HttpExchange exchange) throws IOException {
+        try (exchange; InputStream in = exchange.getRequestBody()) {
+            JsonNode body = objectMapper.readTree(in);
+            long delay = latencyMs + (jitterMs > 0 ? ThreadLocalRandom.current().nextLong(jitterMs + 1) : 0);
+            if (delay > 0) {
+                Thread.sleep(delay);
+            }
+            if (failing || (failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate)) {
+                failures.increment();
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+            UUID correlationId = UUID.fromString(body.path("correlationId").asText());
+            if (!accepted.add(correlationId)) {
+                exchange.sendResponseHeaders(422, -1);
+                return;
+            }
+            requests.increment();
+            cents.add(Money.toCents(new BigDecimal(body.path("amount").asText())));
+            exchange.sendResponseHeaders(200, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            exchange.sendResponseHeaders(400, -1);
+        }
+    }
+
+    private void health(HttpExchange exchange) throws IOException {
+        healthChecks.increment();
+        respondJson(exchange, "{\"failing\":" + failing + ",\"minResponseTime\":" + latencyMs + "}");
+    }
+
+    private void summary(HttpExchange exchange) throws IOException {
+        respondJson(exchange, "{\"totalRequests\":" + requests.sum() + ",\"totalAmount\":" + Money.format(cents.sum()) + "}");
+    }
+
+    private void purge(HttpExchange exchange) throws IOException {
+        accepted.clear();
+        requests.reset();
+        cents.reset();
+        failures.reset();
+        respondJson(exchange, "{\"message\":\"All payments purged.\"}");
+    }
+
+    private static void respondJson(HttpExchange exchange, String json) throws IOException {
+        try (exchange) {
+            byte[] body = json.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (flipper != null) {
+            flipper.shutdownNow();
+        }
+        server.stop(0);
+    }
+}
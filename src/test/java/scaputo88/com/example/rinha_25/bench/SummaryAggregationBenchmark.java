@@ -0,0 +1,90 @@
+package scaputo88.com.example.rinha_25.bench;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.connection.RedisZSetCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import scaputo88.com.example.rinha_25.model.PaymentSummary;
+import scaputo88.com.example.rinha_25.repository.PaymentMemberCodec;
+import scaputo88.com.example.rinha_25.repository.RedisPaymentRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Resumo no modo {@code scan} do {@link RedisPaymentRepository}: decodificação e soma de todos os
+ * members do intervalo no cliente. O Redis é trocado por um {@link RedisTemplate} com uma única janela
+ * que devolve um conjunto fixo de members binários, então só o trabalho da JVM é medido (sem rede).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class SummaryAggregationBenchmark {
+
+    // Epoch 0, sem purge: índice de janelas e a janela única devolvida por ele
+    private static final byte[] WINDOWS_KEY = "payments:0:windows".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] WINDOW = "0".getBytes(StandardCharsets.UTF_8);
+
+    @Param({"100000", "1000000"})
+    public int members;
+
+    private RedisPaymentRepository repository;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        Set<byte[]> zset = new LinkedHashSet<>(members * 2);
+        for (int i = 0; i < members; i++) {
+            UUID id = new UUID(random.nextLong(), random.nextLong());
+            zset.add(PaymentMemberCodec.encode(id, 100 + random.nextInt(100_000), random.nextInt(10) == 0));
+        }
+
+        RedisZSetCommands zSetCommands = mock(RedisZSetCommands.class, withSettings().stubOnly());
+        when(zSetCommands.zRangeByScore(any(byte[].class), anyDouble(), anyDouble())).thenReturn(zset);
+        when(zSetCommands.zRangeByScore(eq(WINDOWS_KEY), anyDouble(), anyDouble())).thenReturn(Set.of(WINDOW));
+        RedisConnection connection = mock(RedisConnection.class, withSettings().stubOnly());
+        when(connection.zSetCommands()).thenReturn(zSetCommands);
+        when(connection.stringCommands()).thenReturn(mock(RedisStringCommands.class, withSettings().stubOnly()));
+
+        RedisTemplate<String, String> template = new RedisTemplate<>() {
+            @Override
+            public <T> T execute(RedisCallback<T> action) {
+                return action.doInRedis(connection);
+            }
+        };
+        repository = new RedisPaymentRepository(template, new SimpleMeterRegistry(), 100, 60_000, 0, 0, 60_000, "scan",
+                false, 256, 200, 3);
+    }
+
+    @Benchmark
+    public PaymentSummary scan() {
+        return repository.getSummary(null, null);
+    }
+}
@@ -0,0 +1,49 @@
+package scaputo88.com.example.rinha_25.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import scaputo88.com.example.rinha_25.model.PaymentSummary;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PaymentSummaryWriterTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    void formatoConhecido() {
+        PaymentSummary summary = new PaymentSummary(1990, 99, 1, 5, 0, 2);
+
+        assertEquals("{\"default\":{\"totalRequests\":1,\"totalAmount\":19.90},"
+                        + "\"fallback\":{\"totalRequests\":2,\"totalAmount\":0.05}}",
+                new String(PaymentSummaryWriter.write(summary), StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void mesmosBytesDoJackson() throws Exception {
+        long[] edges = {0, 1, 9, 10, 99, 100, 101, 1990, 100_000, 123_456_789, -1, -99, -100, -12_345,
+                Long.MAX_VALUE, Long.MIN_VALUE + 1};
+        for (long amount : edges) {
+            for (long requests : new long[]{0, 7, Long.MAX_VALUE, -1, Long.MIN_VALUE}) {
+                assertSameAsJackson(new PaymentSummary(amount, 0, requests, -amount, 0, requests));
+            }
+        }
+        Random random = new Random(11);
+        for (int i = 0; i < 10_000; i++) {
+            assertSameAsJackson(new PaymentSummary(random.nextLong(1L << 40), 0, random.nextInt(1_000_000),
+                    random.nextLong(1L << 40), 0, random.nextInt(1_000_000)));
+        }
+    }
+
+    private void assertSameAsJackson(PaymentSummary summary) throws Exception {
+        PaymentSummaryResponse response = new PaymentSummaryResponse(
+                new ProcessorSummary(summary.default_total_requests(), BigDecimal.valueOf(summary.default_total_amount(), 2)),
+                new ProcessorSummary(summary.fallback_total_requests(), BigDecimal.valueOf(summary.fallback_total_amount(), 2)));
+        String expected = mapper.writeValueAsString(response);
+        assertEquals(expected, new String(PaymentSummaryWriter.write(summary), StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,65 @@
+package scaputo88.com.example.rinha_25.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MoneyTest {
+
+    @Test
+    void feeCentsTruncaComoOBigDecimal() {
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            long cents = i < 10_000 ? i : 1 + (random.nextLong() & 0xFFFF_FFFFL);
+            for (ProcessorType type : ProcessorType.values()) {
+                assertEquals(bigDecimalFee(cents, type.feePercent), Money.feeCents(cents, type.feePercent),
+                        cents + " centavos a " + type.feePercent + "%");
+            }
+        }
+    }
+
+    @Test
+    void feeCentsCasosConhecidos() {
+        assertEquals(99, Money.feeCents(1990, 5));    // 0,995 -> 0,99
+        assertEquals(298, Money.feeCents(1990, 15));  // 2,985 -> 2,98
+        assertEquals(0, Money.feeCents(19, 5));
+        assertEquals(1, Money.feeCents(20, 5));
+        assertEquals(0, Money.feeCents(0, 15));
+    }
+
+    @Test
+    void parseCentsArredondaATerceiraCasa() {
+        assertEquals(1990, Money.parseCents("19.9"));
+        assertEquals(1990, Money.parseCents("19.90"));
+        assertEquals(2000, Money.parseCents("20"));
+        assertEquals(1991, Money.parseCents("19.905"));
+        assertEquals(1990, Money.parseCents("19.9049"));
+        assertEquals(-150, Money.parseCents("-1.5"));
+        assertEquals(0, Money.parseCents("1a.00"));
+        assertEquals(0, Money.parseCents("."));
+        for (String s : new String[]{"0.01", "123.456", "99999.995", "7.5"}) {
+            assertEquals(Money.toCents(new BigDecimal(s)), Money.parseCents(s), s);
+        }
+    }
+
+    @Test
+    void formatEToBigDecimal() {
+        assertEquals("19.90", Money.format(1990));
+        assertEquals("0.05", Money.format(5));
+        assertEquals("-1.50", Money.format(-150));
+        assertEquals(new BigDecimal("19.90"), Money.toBigDecimal(1990));
+    }
+
+    private static long bigDecimalFee(long cents, int percent) {
+        return BigDecimal.valueOf(cents, 2)
+                .multiply(BigDecimal.valueOf(percent))
+                .divide(BigDecimal.valueOf(100))
+                .setScale(2, RoundingMode.DOWN)
+                .movePointRight(2)
+                .longValueExact();
+    }
+}
@@ -0,0 +1,130 @@
+package scaputo88.com.example.rinha_25.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentRequestParserTest {
+
+    private static final String ID = "4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3";
+
+    @Test
+    void corpoComum() {
+        PaymentCommand command = parse("{\"correlationId\": \"" + ID + "\", \"amount\": 19.90}");
+
+        assertEquals(UUID.fromString(ID), command.correlationId());
+        assertEquals(1990, command.amountCents());
+        assertTrue(command.hasAmount());
+    }
+
+    @Test
+    void espacosCamposExtrasEOrdem() {
+        PaymentCommand command = parse(" \n{ \"amount\" :\t7 , \"extra\": {\"a\": [1, \"}\"]}, \"correlationId\":\"" + ID + "\" }\r\n");
+
+        assertEquals(UUID.fromString(ID), command.correlationId());
+        assertEquals(700, command.amountCents());
+    }
+
+    @Test
+    void parseComOffset() {
+        byte[] body = ("xx{\"correlationId\":\"" + ID + "\",\"amount\":1.5}yy").getBytes(StandardCharsets.US_ASCII);
+        PaymentCommand command = PaymentRequestParser.parse(body, 2, body.length - 4);
+
+        assertEquals(150, command.amountCents());
+    }
+
+    @Test
+    void precisaoDoAmountIgualAoBigDecimal() {
+        String[] amounts = {"0.01", "0.005", "19.9", "19.90", "19.905", "19.9049999", "1234567890123456", "12345678901234567", "1e2", "1.005E1", "2.5e-1", "\"42.42\"", "\" 8.125 \""};
+        for (String amount : amounts) {
+            PaymentCommand command = parse("{\"correlationId\":\"" + ID + "\",\"amount\":" + amount + "}");
+            String plain = amount.replace("\"", "").trim();
+            assertEquals(Money.toCents(new BigDecimal(plain)), command.amountCents(), amount);
+        }
+    }
+
+    @Test
+    void amountAusenteNuloOuVazio() {
+        assertFalse(parse("{\"correlationId\":\"" + ID + "\"}").hasAmount());
+        assertFalse(parse("{\"correlationId\":\"" + ID + "\",\"amount\":null}").hasAmount());
+        assertFalse(parse("{\"correlationId\":\"" + ID + "\",\"amount\":\"\"}").hasAmount());
+        // Chave repetida: vale a última
+        assertFalse(parse("{\"correlationId\":\"" + ID + "\",\"amount\":1,\"amount\":null}").hasAmount());
+        assertEquals(200, parse("{\"correlationId\":\"" + ID + "\",\"amount\":1,\"amount\":2}").amountCents());
+    }
+
+    @Test
+    void formasDeUuid() {
+        UUID expected = UUID.fromString(ID);
+        assertEquals(expected, parse("{\"correlationId\":\"" + ID.toUpperCase() + "\"}").correlationId());
+        // Escape na string e na chave caem no caminho lento com o mesmo resultado
+        assertEquals(expected, parse("{\"correlationId\":\"\\u0034" + ID.substring(1) + "\"}").correlationId());
+        assertEquals(expected, parse("{\"correlation\\u0049d\":\"" + ID + "\"}").correlationId());
+        // Não canônico aceito pelo UUID.fromString
+        assertEquals(UUID.fromString("1-2-3-4-5"), parse("{\"correlationId\":\"1-2-3-4-5\"}").correlationId());
+        assertEquals(new UUID(0, 0), parse("{\"correlationId\":\"00000000-0000-0000-0000-000000000000\"}").correlationId());
+    }
+
+    @Test
+    void uuidInvalido() {
+        assertInvalid("{\"correlationId\":\"4a7901b8-7d26-4d9d-aa19-4dc1c7cf60bz\"}");
+        assertInvalid("{\"correlationId\":\"4a7901b87d264d9daa194dc1c7cf60b3\"}");
+        assertInvalid("{\"correlationId\":\"\"}");
+        assertInvalid("{\"correlationId\":123}");
+        assertInvalid("{\"correlationId\":{\"id\":\"" + ID + "\"}}");
+        assertInvalid("{\"correlationId\":null}");
+        assertInvalid("{\"amount\":1}");
+    }
+
+    @Test
+    void corposMalformados() {
+        assertInvalid("");
+        assertInvalid("   ");
+        assertInvalid("[]");
+        assertInvalid("{}");
+        assertInvalid("{");
+        assertInvalid("{\"correlationId\":\"" + ID + "\"");
+        assertInvalid("{\"correlationId\":\"" + ID + "\",}");
+        assertInvalid("{\"correlationId\" \"" + ID + "\"}");
+        assertInvalid("{\"correlationId\":\"" + ID + "}");
+        assertInvalid("{correlationId:\"" + ID + "\"}");
+        assertInvalid("{\"correlationId\":\"" + ID + "\" \"amount\":1}");
+        assertInvalid("{\"correlationId\":\"" + ID + "\",\"amount\":}");
+        assertInvalid("{\"correlationId\":\"" + ID + "\",\"extra\":[1,2}");
+        assertInvalid("{\"correlationId\":\"\\x" + ID + "\"}");
+    }
+
+    @Test
+    void amountInvalido() {
+        assertInvalid("{\"correlationId\":\"" + ID + "\",\"amount\":true}");
+        assertInvalid("{\"correlationId\":\"" + ID + "\",\"amount\":\"abc\"}");
+        assertInvalid("{\"correlationId\":\"" + ID + "\",\"amount\":[1]}");
+        assertInvalid("{\"correlationId\":\"" + ID + "\",\"amount\":01}");
+        assertInvalid("{\"correlationId\":\"" + ID + "\",\"amount\":1.}");
+        assertInvalid("{\"correlationId\":\"" + ID + "\",\"amount\":.5}");
+        assertInvalid("{\"correlationId\":\"" + ID + "\",\"amount\":1e}");
+    }
+
+    @Test
+    void amountZeroOuNegativo() {
+        // Inclui o que arredonda para zero centavos
+        for (String amount : new String[]{"0", "0.0", "0.004", "-0.01", "-3.335", "\"-1\"", "-1e2", "-0"}) {
+            assertInvalid("{\"correlationId\":\"" + ID + "\",\"amount\":" + amount + "}");
+        }
+    }
+
+    private static PaymentCommand parse(String body) {
+        return PaymentRequestParser.parse(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertInvalid(String body) {
+        assertThrows(IllegalArgumentException.class, () -> parse(body), body);
+    }
+}
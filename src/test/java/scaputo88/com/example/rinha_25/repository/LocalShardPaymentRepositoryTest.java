@@ -0,0 +1,179 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import scaputo88.com.example.rinha_25.model.Payment;
+import scaputo88.com.example.rinha_25.model.PaymentSummary;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class LocalShardPaymentRepositoryTest {
+
+    private static final Instant T0 = Instant.parse("2025-07-01T12:00:00Z");
+
+    // Conteúdo "no Redis": o mock grava e resume a partir desta lista, com um round trip simulado
+    private final List<Payment> stored = new ArrayList<>();
+    private RedisPaymentRepository redis;
+    private LocalShardPaymentRepository shard;
+
+    @BeforeEach
+    void setUp() {
+        redis = mock(RedisPaymentRepository.class);
+        doAnswer(inv -> {
+            List<Payment> batch = inv.getArgument(0);
+            Thread.sleep(2);
+            synchronized (stored) {
+                stored.addAll(batch);
+            }
+            return null;
+        }).when(redis).saveAll(any());
+        doAnswer(inv -> {
+            synchronized (stored) {
+                stored.add(inv.getArgument(0));
+            }
+            return null;
+        }).when(redis).save(any());
+        when(redis.getSummary(any(), any())).thenAnswer(inv -> {
+            List<Payment> snapshot;
+            synchronized (stored) {
+                snapshot = new ArrayList<>(stored);
+            }
+            return summarize(snapshot, inv.getArgument(0), inv.getArgument(1));
+        });
+        shard = new LocalShardPaymentRepository(redis, 1, 64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shard.close();
+    }
+
+    @Test
+    void resumoSomaRedisECaudaLocal() {
+        shard.save(payment("default", 1000, 50, T0));
+        shard.save(payment("fallback", 2000, 300, T0.plusSeconds(1)));
+        shard.save(payment("default", 500, 25, T0.plusSeconds(10)));
+
+        PaymentSummary all = shard.getSummary(null, null);
+        assertEquals(new PaymentSummary(1500, 75, 2, 2000, 300, 1), all);
+
+        PaymentSummary range = shard.getSummary(T0, T0.plusSeconds(5));
+        assertEquals(new PaymentSummary(1000, 50, 1, 2000, 300, 1), range);
+    }
+
+    @Test
+    void flushLevaACaudaParaORedisSemMudarOResumo() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            shard.save(payment(i % 2 == 0 ? "default" : "fallback", 100, 5, T0.plusMillis(i)));
+        }
+        awaitFlushed(10);
+
+        assertEquals(new PaymentSummary(500, 25, 5, 500, 25, 5), shard.getSummary(null, null));
+        assertEquals(new PaymentSummary(500, 25, 5, 500, 25, 5), shard.getSummary(T0, T0.plusSeconds(1)));
+    }
+
+    @Test
+    void anelCheioGravaDireto() {
+        when(redis.dataVersion()).thenReturn(7L);
+        // Flush falhando: nada sai do anel
+        doAnswer(inv -> {
+            throw new IllegalStateException("redis fora");
+        }).when(redis).saveAll(any());
+
+        for (int i = 0; i < 65; i++) {
+            shard.save(payment("default", 100, 5, T0));
+        }
+
+        assertEquals(-1L, shard.dataVersion());
+        synchronized (stored) {
+            assertEquals(1, stored.size());
+        }
+        assertEquals(65, shard.getSummary(null, null).default_total_requests());
+    }
+
+    @Test
+    void resumoConcorrenteComFlushNaoContaDuasVezesNemPerde() throws Exception {
+        int writers = 4;
+        int perWriter = 2000;
+        AtomicLong saved = new AtomicLong();
+        AtomicReference<String> violation = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(writers);
+        shard.close();
+        shard = new LocalShardPaymentRepository(redis, 1, 1 << 16);
+
+        for (int w = 0; w < writers; w++) {
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < perWriter; i++) {
+                    shard.save(payment("default", 100, 5, T0));
+                    saved.incrementAndGet();
+                }
+                done.countDown();
+            });
+            t.start();
+        }
+        while (done.getCount() > 0) {
+            long before = saved.get();
+            long unbounded = shard.getSummary(null, null).default_total_requests();
+            long ranged = shard.getSummary(T0, T0).default_total_requests();
+            long after = saved.get();
+            // Só conta pagamentos já salvos e nunca menos do que os que terminaram antes da leitura
+            if (unbounded < before || ranged < before || unbounded > after + writers || ranged > after + writers) {
+                violation.compareAndSet(null, "before=" + before + " after=" + after
+                        + " unbounded=" + unbounded + " ranged=" + ranged);
+            }
+        }
+
+        assertNull(violation.get());
+        awaitFlushed(writers * perWriter);
+        assertEquals(writers * perWriter, shard.getSummary(null, null).default_total_requests());
+        assertEquals(writers * perWriter, shard.getSummary(T0, T0).default_total_requests());
+    }
+
+    private void awaitFlushed(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (System.currentTimeMillis() < deadline) {
+            synchronized (stored) {
+                if (stored.size() >= expected) {
+                    break;
+                }
+            }
+            Thread.sleep(1);
+        }
+        synchronized (stored) {
+            assertTrue(stored.size() >= expected, "flushed=" + stored.size());
+        }
+    }
+
+    private static Payment payment(String processor, long amountCents, long feeCents, Instant ts) {
+        return new Payment(UUID.randomUUID(), processor, amountCents, feeCents, ts, "fallback".equals(processor));
+    }
+
+    private static PaymentSummary summarize(List<Payment> payments, Instant from, Instant to) {
+        long[] t = new long[6];
+        for (Payment p : payments) {
+            if ((from != null && p.timestamp().isBefore(from)) || (to != null && p.timestamp().isAfter(to))) {
+                continue;
+            }
+            int base = "fallback".equals(p.processorUsed()) ? 3 : 0;
+            t[base] += p.amountCents();
+            t[base + 1] += p.feeCents();
+            t[base + 2]++;
+        }
+        return new PaymentSummary(t[0], t[1], t[2], t[3], t[4], t[5]);
+    }
+}
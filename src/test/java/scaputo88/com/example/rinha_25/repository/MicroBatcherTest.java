@@ -0,0 +1,111 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Reenvio de lotes que falham, contagem do que se perde e clear com lote em voo. */
+class MicroBatcherTest {
+
+    private final List<Integer> written = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger dropped = new AtomicInteger();
+    private MicroBatcher<Integer> batcher;
+
+    @AfterEach
+    void tearDown() {
+        if (batcher != null) batcher.close();
+    }
+
+    @Test
+    void loteQueFalhaEhReenviado() throws InterruptedException {
+        AtomicInteger failures = new AtomicInteger(2);
+        batcher = batcher(3, batch -> {
+            if (failures.getAndDecrement() > 0) throw new IllegalStateException("redis fora");
+            written.addAll(batch);
+        });
+
+        assertTrue(batcher.offer(1));
+        assertTrue(batcher.offer(2));
+        awaitWritten(2);
+
+        assertEquals(List.of(1, 2), written);
+        assertEquals(0, dropped.get());
+    }
+
+    @Test
+    void loteQueEsgotaAsTentativasContaCadaItemPerdido() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        batcher = batcher(3, batch -> {
+            calls.incrementAndGet();
+            throw new IllegalStateException("redis fora");
+        });
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(batcher.offer(i));
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (dropped.get() < 5 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertEquals(5, dropped.get());
+        assertEquals(0, calls.get() % 3, "cada lote tenta 3 vezes");
+    }
+
+    @Test
+    void clearEsperaOLoteEmVooENaoGravaNadaAnteriorDepois() throws InterruptedException {
+        CountDownLatch flushing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        batcher = batcher(1, batch -> {
+            flushing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            written.addAll(batch);
+        });
+
+        assertTrue(batcher.offer(1));
+        assertTrue(flushing.await(5, TimeUnit.SECONDS));
+        // Fica na fila enquanto o lote 1 grava: o clear descarta
+        assertTrue(batcher.offer(2));
+
+        List<Integer> seenByPurge = new ArrayList<>();
+        Thread purge = new Thread(() -> batcher.clear(() -> seenByPurge.addAll(written)));
+        purge.start();
+        Thread.sleep(50);
+        assertTrue(purge.isAlive(), "clear não pode rodar com lote em voo");
+
+        release.countDown();
+        purge.join(5000);
+        assertFalse(purge.isAlive());
+        assertEquals(List.of(1), seenByPurge);
+
+        assertTrue(batcher.offer(3));
+        awaitWritten(2);
+        assertEquals(List.of(1, 3), written);
+    }
+
+    private MicroBatcher<Integer> batcher(int maxAttempts, Consumer<List<Integer>> flusher) {
+        return new MicroBatcher<>("test-writer", 64, 16, 200, maxAttempts, flusher, dropped::addAndGet);
+    }
+
+    private void awaitWritten(int count) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (written.size() < count && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+}
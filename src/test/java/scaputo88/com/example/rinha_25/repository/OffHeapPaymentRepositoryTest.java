@@ -0,0 +1,160 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import scaputo88.com.example.rinha_25.model.Payment;
+import scaputo88.com.example.rinha_25.model.PaymentSummary;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapPaymentRepositoryTest {
+
+    private static final long T0 = Instant.parse("2025-07-01T12:00:00Z").toEpochMilli();
+
+    @TempDir
+    Path dir;
+
+    private final Random random = new Random(7);
+
+    @Test
+    void resumoNasBordasDoIntervalo() {
+        try (OffHeapPaymentRepository repo = open(64)) {
+            repo.save(payment(ProcessorType.DEFAULT, 1000, T0));
+            repo.save(payment(ProcessorType.FALLBACK, 2000, T0 + 10));
+            repo.save(payment(ProcessorType.DEFAULT, 3000, T0 + 20));
+
+            // from e to inclusivos
+            assertEquals(new PaymentSummary(1000, 50, 1, 2000, 300, 1), repo.getSummary(at(T0), at(T0 + 10)));
+            assertEquals(new PaymentSummary(0, 0, 0, 2000, 300, 1), repo.getSummary(at(T0 + 10), at(T0 + 10)));
+            assertEquals(new PaymentSummary(3000, 150, 1, 0, 0, 0), repo.getSummary(at(T0 + 11), null));
+            assertEquals(new PaymentSummary(1000, 50, 1, 0, 0, 0), repo.getSummary(null, at(T0 + 9)));
+            assertEquals(new PaymentSummary(4000, 200, 2, 2000, 300, 1), repo.getSummary(null, null));
+            // Fora dos dados e intervalo invertido
+            assertEquals(empty(), repo.getSummary(at(T0 - 100), at(T0 - 1)));
+            assertEquals(empty(), repo.getSummary(at(T0 + 21), null));
+            assertEquals(empty(), repo.getSummary(at(T0 + 20), at(T0 + 10)));
+        }
+    }
+
+    @Test
+    void foraDeOrdemMantemColunasOrdenadasETotaisDosBlocos() {
+        List<Payment> saved = new ArrayList<>();
+        try (OffHeapPaymentRepository repo = open(8192)) {
+            // Mais de 3 blocos, com atrasos que deslocam linhas através das fronteiras de bloco
+            for (int i = 0; i < 3500; i++) {
+                long ts = T0 + i * 3L - (i % 7 == 0 ? random.nextInt(4000) : 0);
+                Payment p = payment(random.nextBoolean() ? ProcessorType.DEFAULT : ProcessorType.FALLBACK,
+                        1 + random.nextInt(100_000), ts);
+                repo.save(p);
+                saved.add(p);
+            }
+            // Um pagamento bem atrasado desloca tudo uma linha
+            Payment oldest = payment(ProcessorType.FALLBACK, 12_345, T0 - 10_000);
+            repo.save(oldest);
+            saved.add(oldest);
+
+            assertSummaries(repo, saved);
+        }
+    }
+
+    @Test
+    void correlationIdRepetidoNaoContaDeNovo() {
+        try (OffHeapPaymentRepository repo = open(64)) {
+            Payment p = payment(ProcessorType.DEFAULT, 1000, T0);
+            repo.save(p);
+            repo.save(p);
+            repo.save(new Payment(p.correlationId(), "fallback", 5000, 750, at(T0 - 5), true));
+
+            assertEquals(new PaymentSummary(1000, 50, 1, 0, 0, 0), repo.getSummary(null, null));
+        }
+    }
+
+    @Test
+    void reabrirReconstroiIndiceEBlocos() {
+        List<Payment> saved = new ArrayList<>();
+        try (OffHeapPaymentRepository repo = open(4096)) {
+            for (int i = 0; i < 2500; i++) {
+                Payment p = payment(i % 3 == 0 ? ProcessorType.FALLBACK : ProcessorType.DEFAULT, 100 + i, T0 + i - (i % 5) * 10L);
+                repo.save(p);
+                saved.add(p);
+            }
+        }
+        try (OffHeapPaymentRepository repo = open(4096)) {
+            assertSummaries(repo, saved);
+            // O índice reconstruído continua barrando repetidos
+            repo.save(saved.get(1234));
+            assertSummaries(repo, saved);
+        }
+        // Outra capacidade: layout diferente, recomeça vazio
+        try (OffHeapPaymentRepository repo = open(8192)) {
+            assertEquals(empty(), repo.getSummary(null, null));
+        }
+    }
+
+    @Test
+    void cheioLancaEmVezDeDescartarEmSilencio() {
+        try (OffHeapPaymentRepository repo = open(2)) {
+            repo.save(payment(ProcessorType.DEFAULT, 100, T0));
+            repo.save(payment(ProcessorType.DEFAULT, 100, T0 + 1));
+
+            assertThrows(IllegalStateException.class, () -> repo.save(payment(ProcessorType.DEFAULT, 100, T0 + 2)));
+            assertEquals(2, repo.getSummary(null, null).default_total_requests());
+
+            repo.purgePayments();
+            repo.save(payment(ProcessorType.DEFAULT, 100, T0 + 3));
+            assertEquals(1, repo.getSummary(null, null).default_total_requests());
+        }
+    }
+
+    private OffHeapPaymentRepository open(int capacity) {
+        return new OffHeapPaymentRepository(dir.resolve("payments.dat").toString(), capacity);
+    }
+
+    // Compara com a soma direta em vários intervalos, inclusive com bordas exatamente em timestamps gravados
+    private void assertSummaries(OffHeapPaymentRepository repo, List<Payment> saved) {
+        assertEquals(expected(saved, null, null), repo.getSummary(null, null));
+        for (int k = 0; k < 200; k++) {
+            long a = saved.get(random.nextInt(saved.size())).timestamp().toEpochMilli() + random.nextInt(3) - 1;
+            long b = saved.get(random.nextInt(saved.size())).timestamp().toEpochMilli() + random.nextInt(3) - 1;
+            Instant from = at(Math.min(a, b));
+            Instant to = at(Math.max(a, b));
+            assertEquals(expected(saved, from, to), repo.getSummary(from, to), "from=" + from + " to=" + to);
+        }
+    }
+
+    private static PaymentSummary expected(List<Payment> payments, Instant from, Instant to) {
+        long[] t = new long[6];
+        for (Payment p : payments) {
+            if ((from != null && p.timestamp().isBefore(from)) || (to != null && p.timestamp().isAfter(to))) {
+                continue;
+            }
+            int base = p.usedFallback() ? 3 : 0;
+            t[base] += p.amountCents();
+            t[base + 1] += p.feeCents();
+            t[base + 2]++;
+        }
+        return new PaymentSummary(t[0], t[1], t[2], t[3], t[4], t[5]);
+    }
+
+    private static Payment payment(ProcessorType type, long cents, long ts) {
+        return new Payment(UUID.randomUUID(), type.value, cents, cents * type.feePercent / 100, at(ts),
+                type == ProcessorType.FALLBACK);
+    }
+
+    private static Instant at(long millis) {
+        return Instant.ofEpochMilli(millis);
+    }
+
+    private static PaymentSummary empty() {
+        return new PaymentSummary(0, 0, 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,76 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PaymentMemberCodecTest {
+
+    private static final UUID ID = UUID.fromString("4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3");
+
+    @Test
+    void idaEVolta() {
+        byte[] member = PaymentMemberCodec.encode(ID, 1990, false);
+        long packed = PaymentMemberCodec.packedValue(member);
+
+        assertTrue(PaymentMemberCodec.isBinary(member));
+        assertEquals(ID, PaymentMemberCodec.correlationId(member));
+        assertEquals(1990, PaymentMemberCodec.amountCents(packed));
+        assertFalse(PaymentMemberCodec.isFallback(packed));
+
+        long fallback = PaymentMemberCodec.packedValue(PaymentMemberCodec.encode(ID, 1990, true));
+        assertEquals(1990, PaymentMemberCodec.amountCents(fallback));
+        assertTrue(PaymentMemberCodec.isFallback(fallback));
+    }
+
+    @Test
+    void varintNasFronteirasDeByte() {
+        // valor empacotado = (centavos << 1) | fallback; cada byte do varint carrega 7 bits
+        assertRoundTrip(0, false, 18);
+        assertRoundTrip(0, true, 18);
+        assertRoundTrip(63, true, 18);      // 127: último valor de 1 byte
+        assertRoundTrip(64, false, 19);     // 128: primeiro de 2 bytes
+        assertRoundTrip(8191, true, 19);    // 2^14 - 1
+        assertRoundTrip(8192, false, 20);   // 2^14
+        assertRoundTrip(Long.MAX_VALUE >>> 1, true, 26); // 63 bits: 9 bytes
+    }
+
+    @Test
+    void uuidsExtremos() {
+        for (UUID id : new UUID[]{new UUID(0, 0), new UUID(-1, -1), new UUID(Long.MIN_VALUE, Long.MAX_VALUE)}) {
+            byte[] member = PaymentMemberCodec.encode(id, 100, false);
+            assertEquals(id, PaymentMemberCodec.correlationId(member));
+            assertEquals(100, PaymentMemberCodec.amountCents(PaymentMemberCodec.packedValue(member)));
+        }
+    }
+
+    @Test
+    void valorNegativoNaoCabeNoVarint() {
+        // Com sinal, (centavos << 1) >>> 1 voltaria como um valor positivo enorme
+        assertThrows(IllegalArgumentException.class, () -> PaymentMemberCodec.encode(ID, -1, false));
+        assertThrows(IllegalArgumentException.class, () -> PaymentMemberCodec.encode(ID, Long.MIN_VALUE, true));
+    }
+
+    @Test
+    void memberLegadoNaoEBinario() {
+        byte[] legacy = ("default|19.90|0.99|false|" + ID).getBytes(StandardCharsets.UTF_8);
+        assertFalse(PaymentMemberCodec.isBinary(legacy));
+        // Só a versão, sem UUID e valor completos
+        assertFalse(PaymentMemberCodec.isBinary(new byte[]{PaymentMemberCodec.VERSION}));
+    }
+
+    private static void assertRoundTrip(long cents, boolean fallback, int expectedLength) {
+        byte[] member = PaymentMemberCodec.encode(ID, cents, fallback);
+        long packed = PaymentMemberCodec.packedValue(member);
+        assertEquals(expectedLength, member.length, "tamanho para " + cents);
+        assertEquals(cents, PaymentMemberCodec.amountCents(packed));
+        assertEquals(fallback, PaymentMemberCodec.isFallback(packed));
+        assertEquals(ID, PaymentMemberCodec.correlationId(member));
+    }
+}
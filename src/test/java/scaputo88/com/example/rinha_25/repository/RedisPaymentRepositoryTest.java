@@ -0,0 +1,169 @@
+package scaputo88.com.example.rinha_25.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import scaputo88.com.example.rinha_25.model.Payment;
+import scaputo88.com.example.rinha_25.repository.RedisPaymentRepository.PartialWindow;
+import scaputo88.com.example.rinha_25.repository.RedisPaymentRepository.SummaryPlan;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/** Plano do resumo e argumentos da gravação; nada aqui fala com o Redis. */
+class RedisPaymentRepositoryTest {
+
+    private final Random random = new Random(11);
+    private final List<RedisPaymentRepository> repos = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        repos.forEach(RedisPaymentRepository::close);
+    }
+
+    @Test
+    void intervaloAlinhadoUsaSoTotaisDasJanelas() {
+        RedisPaymentRepository repo = repo(100, 1000, 60_000);
+        assertPlan(repo.plan(1000L, 2999L), "1", "2");
+        assertPlan(repo.plan(1000L, 1999L), "1", "1");
+        assertPlan(repo.plan(null, null), "-inf", "+inf");
+        assertPlan(repo.plan(2000L, null), "2", "+inf");
+        assertPlan(repo.plan(null, 999L), "-inf", "0");
+    }
+
+    @Test
+    void janelasParciaisNasBordasDescemAosBucketsEAoZset() {
+        RedisPaymentRepository repo = repo(100, 1000, 60_000);
+        SummaryPlan plan = repo.plan(1050L, 3120L);
+
+        assertPlan(plan, "2", "2",
+                new PartialWindow(1, new String[]{"1050", "1099", "11", "19", "", ""}),
+                new PartialWindow(3, new String[]{"", "", "30", "30", "3100", "3120"}));
+    }
+
+    @Test
+    void intervaloDentroDeUmaJanelaSoTemParcial() {
+        RedisPaymentRepository repo = repo(100, 1000, 60_000);
+        // Menor que um bucket: só ZSET
+        assertPlan(repo.plan(1050L, 1080L), "", "",
+                new PartialWindow(1, new String[]{"1050", "1080", "", "", "", ""}));
+        // Buckets inteiros no meio, bordas no ZSET
+        assertPlan(repo.plan(1250L, 1730L), "", "",
+                new PartialWindow(1, new String[]{"1250", "1299", "13", "16", "1700", "1730"}));
+        // Janelas vizinhas, ambas parciais, nenhuma inteira
+        assertPlan(repo.plan(1500L, 2499L), "", "",
+                new PartialWindow(1, new String[]{"", "", "15", "19", "", ""}),
+                new PartialWindow(2, new String[]{"", "", "20", "24", "", ""}));
+    }
+
+    @Test
+    void intervaloAbertoComUmaBordaParcial() {
+        RedisPaymentRepository repo = repo(100, 1000, 60_000);
+        assertPlan(repo.plan(1500L, null), "2", "+inf",
+                new PartialWindow(1, new String[]{"", "", "15", "19", "", ""}));
+        assertPlan(repo.plan(null, 2349L), "-inf", "1",
+                new PartialWindow(2, new String[]{"", "", "20", "22", "2300", "2349"}));
+    }
+
+    @Test
+    void planoCobreOIntervaloExatamenteUmaVez() {
+        // Inclui janela que não é múltiplo do bucket (1050 vira 1100) e timestamps negativos
+        long[][] configs = {{100, 1000}, {100, 1050}, {1, 7}, {7, 7}, {250, 60_000}};
+        for (long[] config : configs) {
+            RedisPaymentRepository repo = repo(config[0], config[1], 0);
+            long window = (config[1] + config[0] - 1) / config[0] * config[0];
+            for (int k = 0; k < 2000; k++) {
+                long a = random.nextInt((int) (window * 6)) - window * 2;
+                long b = a + random.nextInt((int) (window * 3));
+                assertCovers(repo.plan(a, b), a, b, config[0], window);
+            }
+        }
+    }
+
+    @Test
+    void janelaMaisAntigaDoDedupeArredondaParaCima() {
+        Payment payment = new Payment(UUID.randomUUID(), "default", 1990, 99,
+                Instant.ofEpochMilli(125_000), false);
+
+        // 125000 cai na janela 2 de 60s
+        assertEquals("2", arg(repo(100, 60_000, 60_000), payment, 6));
+        assertEquals("1", arg(repo(100, 60_000, 60_000), payment, 7));
+        assertEquals("0", arg(repo(100, 60_000, 60_001), payment, 7));
+        assertEquals("0", arg(repo(100, 60_000, 90_000), payment, 7));
+        // Sem lookback a janela mais antiga é a própria: o script não consulta nenhuma anterior
+        assertEquals("2", arg(repo(100, 60_000, 0), payment, 7));
+        // Janela de 1s: um minuto de lookback são 60 janelas
+        assertEquals("65", arg(repo(100, 1000, 60_000), payment, 7));
+        // Bucket e timestamp também vão nos argumentos
+        assertEquals("1250", arg(repo(100, 60_000, 60_000), payment, 3));
+        assertEquals("125000", arg(repo(100, 60_000, 60_000), payment, 1));
+    }
+
+    // Sem micro-batcher nem template: só plano e argumentos
+    private RedisPaymentRepository repo(long bucketWidthMs, long windowWidthMs, long dedupeLookbackMs) {
+        RedisPaymentRepository repo = new RedisPaymentRepository(null, new SimpleMeterRegistry(), bucketWidthMs,
+                windowWidthMs, 0, 0, dedupeLookbackMs, "buckets", false, 1, 0, 1);
+        repos.add(repo);
+        return repo;
+    }
+
+    private static String arg(RedisPaymentRepository repo, Payment payment, int index) {
+        return new String(repo.saveArgs(payment)[index], StandardCharsets.US_ASCII);
+    }
+
+    private static void assertPlan(SummaryPlan plan, String fullMin, String fullMax, PartialWindow... partial) {
+        assertEquals(fullMin, plan.fullMin(), "fullMin");
+        assertEquals(fullMax, plan.fullMax(), "fullMax");
+        assertEquals(partial.length, plan.partial().size(), "janelas parciais");
+        for (int i = 0; i < partial.length; i++) {
+            assertEquals(partial[i].window(), plan.partial().get(i).window());
+            assertArrayEquals(partial[i].ranges(), plan.partial().get(i).ranges(), "janela " + partial[i].window());
+        }
+    }
+
+    // Junta os trechos de janelas inteiras, buckets e ZSET e confere que formam [min, max] sem buraco nem sobreposição
+    private static void assertCovers(SummaryPlan plan, long min, long max, long bucket, long window) {
+        String context = "[" + min + ", " + max + "] bucket=" + bucket + " janela=" + window;
+        List<long[]> pieces = new ArrayList<>();
+        if (!plan.fullMin().isEmpty()) {
+            for (long w = Long.parseLong(plan.fullMin()); w <= Long.parseLong(plan.fullMax()); w++) {
+                pieces.add(new long[]{w * window, (w + 1) * window - 1});
+            }
+        }
+        for (PartialWindow partial : plan.partial()) {
+            String[] r = partial.ranges();
+            long start = partial.window() * window;
+            long end = start + window - 1;
+            if (!r[0].isEmpty()) {
+                pieces.add(new long[]{Long.parseLong(r[0]), Long.parseLong(r[1])});
+            }
+            if (!r[2].isEmpty()) {
+                long from = Long.parseLong(r[2]) * bucket;
+                long to = (Long.parseLong(r[3]) + 1) * bucket - 1;
+                assertTrue(from >= start && to <= end, "buckets fora da janela " + partial.window() + " " + context);
+                pieces.add(new long[]{from, to});
+            }
+            if (!r[4].isEmpty()) {
+                pieces.add(new long[]{Long.parseLong(r[4]), Long.parseLong(r[5])});
+            }
+        }
+        pieces.sort(Comparator.comparingLong(p -> p[0]));
+
+        long next = min;
+        for (long[] piece : pieces) {
+            assertEquals(next, piece[0], context);
+            assertTrue(piece[1] >= piece[0], context);
+            next = piece[1] + 1;
+        }
+        assertEquals(max + 1, next, context);
+    }
+}
@@ -0,0 +1,96 @@
+package scaputo88.com.example.rinha_25.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+import scaputo88.com.example.rinha_25.service.ProcessorClient.Outcome;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.time.Instant;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** POST /payments contra um processor local: outcome de cada resposta e vaga do limiter devolvida. */
+class HttpClientProcessorClientTest {
+
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicInteger delayMs = new AtomicInteger();
+    private final ExecutorService serverExecutor = Executors.newCachedThreadPool();
+    private HttpServer server;
+    private HttpClientProcessorClient client;
+    private ProcessorConcurrencyLimiter limiter;
+
+    @AfterEach
+    void tearDown() {
+        if (client != null) client.close();
+        if (server != null) server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    void respostaViraOutcomeEDevolveAVaga() throws IOException {
+        start(true);
+        int permits = limiter.available(ProcessorType.DEFAULT);
+
+        assertEquals(Outcome.SUCCESS, send("default"));
+        status.set(422);
+        assertEquals(Outcome.REJECTED, send("default"));
+        status.set(500);
+        assertEquals(Outcome.FAILURE, send("default"));
+        status.set(200);
+        delayMs.set(1000);
+        assertEquals(Outcome.TIMEOUT, send("default"));
+
+        assertEquals(permits, limiter.available(ProcessorType.DEFAULT));
+    }
+
+    @Test
+    void conexaoRecusadaEhFalhaENaoTimeout() throws IOException {
+        start(false);
+        int permits = limiter.available(ProcessorType.FALLBACK);
+
+        assertEquals(Outcome.FAILURE, send("fallback"));
+        assertEquals(permits, limiter.available(ProcessorType.FALLBACK));
+    }
+
+    private Outcome send(String processor) {
+        return client.sendPayment(processor, UUID.randomUUID(), 1990, Instant.parse("2025-07-15T12:34:56.000Z"));
+    }
+
+    // Com listening=false a URL aponta para uma porta livre, sem ninguém escutando
+    private void start(boolean listening) throws IOException {
+        String url;
+        if (listening) {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/payments", exchange -> {
+                exchange.getRequestBody().readAllBytes();
+                try {
+                    Thread.sleep(delayMs.get());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                exchange.sendResponseHeaders(status.get(), -1);
+                exchange.close();
+            });
+            server.setExecutor(serverExecutor);
+            server.start();
+            url = "http://127.0.0.1:" + server.getAddress().getPort();
+        } else {
+            try (ServerSocket socket = new ServerSocket(0)) {
+                url = "http://127.0.0.1:" + socket.getLocalPort();
+            }
+        }
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        limiter = new ProcessorConcurrencyLimiter();
+        client = new HttpClientProcessorClient(limiter, new PaymentMetrics(registry),
+                new ProcessorCircuitBreaker(registry, 100, 1000, false, 250, 10), url, url);
+    }
+}
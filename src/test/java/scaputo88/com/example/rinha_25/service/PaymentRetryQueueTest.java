@@ -0,0 +1,50 @@
+package scaputo88.com.example.rinha_25.service;
+
+import org.junit.jupiter.api.Test;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+import scaputo88.com.example.rinha_25.service.PaymentRetryQueue.RetryPayment;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/** Formato dos itens da fila de retentativas; nada aqui fala com o Redis. */
+class PaymentRetryQueueTest {
+
+    private static final UUID ID = UUID.fromString("4a7901b8-7d26-4d9d-aa19-4dc1c7cf60b3");
+
+    @Test
+    void semEsperasMantemFormatoAntigo() {
+        assertEquals(ID + "|1990|2", PaymentRetryQueue.encode(ID, 1990, 2, null, 0));
+        assertEquals(ID + "|1990|2|default", PaymentRetryQueue.encode(ID, 1990, 2, ProcessorType.DEFAULT, 0));
+    }
+
+    @Test
+    void esperasVoltamComProcessorVazioQuandoNaoEstaPreso() {
+        assertDecoded(PaymentRetryQueue.encode(ID, 1990, 0, null, 3), 0, null, 3);
+        assertDecoded(PaymentRetryQueue.encode(ID, 1990, 4, ProcessorType.FALLBACK, 1), 4, ProcessorType.FALLBACK, 1);
+    }
+
+    @Test
+    void decodificaItensGravadosAntesDasEsperas() {
+        assertDecoded(ID + "|1990|2", 2, null, 0);
+        assertDecoded(ID + "|1990|2|default", 2, ProcessorType.DEFAULT, 0);
+    }
+
+    @Test
+    void itemInvalidoViraNull() {
+        assertNull(PaymentRetryQueue.decode(ID + "|1990"));
+        assertNull(PaymentRetryQueue.decode(ID + "|1990|2|default|x"));
+    }
+
+    private static void assertDecoded(String entry, int attempt, ProcessorType processor, int waits) {
+        RetryPayment retry = PaymentRetryQueue.decode(entry);
+        assertEquals(ID, retry.correlationId());
+        assertEquals(1990, retry.amountCents());
+        assertEquals(attempt, retry.attempt());
+        assertEquals(processor, retry.processor());
+        assertEquals(waits, retry.waits());
+        assertEquals(entry, retry.entry());
+    }
+}
@@ -0,0 +1,159 @@
+package scaputo88.com.example.rinha_25.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import scaputo88.com.example.rinha_25.model.ProcessorType;
+import scaputo88.com.example.rinha_25.service.ProcessorClient.HealthStatus;
+import scaputo88.com.example.rinha_25.service.ProcessorClient.Outcome;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProcessorCircuitBreakerTest {
+
+    private static final ProcessorType DEFAULT = ProcessorType.DEFAULT;
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static ProcessorCircuitBreaker breaker(int threshold, long openMs) {
+        return new ProcessorCircuitBreaker(new SimpleMeterRegistry(), threshold, openMs, true, 250, 10);
+    }
+
+    @Test
+    void abreAposFalhasSeguidas() {
+        ProcessorCircuitBreaker cb = breaker(3, 60_000);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        cb.onResult(DEFAULT, Outcome.TIMEOUT, 250 * MS);
+        assertTrue(cb.tryAcquire(DEFAULT));
+
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+
+        assertFalse(cb.isAvailable(DEFAULT));
+        assertFalse(cb.tryAcquire(DEFAULT));
+        // O outro processor não é afetado
+        assertTrue(cb.tryAcquire(ProcessorType.FALLBACK));
+    }
+
+    @Test
+    void sucessoOu4xxZeramAsFalhas() {
+        ProcessorCircuitBreaker cb = breaker(3, 60_000);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        cb.onResult(DEFAULT, Outcome.REJECTED, MS);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        cb.onResult(DEFAULT, Outcome.SUCCESS, MS);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+
+        assertTrue(cb.isAvailable(DEFAULT));
+    }
+
+    @Test
+    void meioAbertoLiberaUmTesteEFechaComSucesso() throws InterruptedException {
+        ProcessorCircuitBreaker cb = breaker(1, 50);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        assertFalse(cb.tryAcquire(DEFAULT));
+
+        Thread.sleep(60);
+        assertTrue(cb.isAvailable(DEFAULT));
+        assertTrue(cb.tryAcquire(DEFAULT));
+        // Só uma chamada de teste por vez
+        assertFalse(cb.tryAcquire(DEFAULT));
+
+        cb.onResult(DEFAULT, Outcome.SUCCESS, MS);
+        assertTrue(cb.tryAcquire(DEFAULT));
+        assertTrue(cb.tryAcquire(DEFAULT));
+    }
+
+    @Test
+    void falhaNoTesteReabre() throws InterruptedException {
+        ProcessorCircuitBreaker cb = breaker(2, 50);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        Thread.sleep(60);
+        assertTrue(cb.tryAcquire(DEFAULT));
+
+        // Uma falha basta no meio aberto, sem esperar o limite de novo
+        cb.onResult(DEFAULT, Outcome.TIMEOUT, 250 * MS);
+
+        assertFalse(cb.isAvailable(DEFAULT));
+        assertFalse(cb.tryAcquire(DEFAULT));
+        Thread.sleep(60);
+        assertTrue(cb.tryAcquire(DEFAULT));
+    }
+
+    @Test
+    void testeNaoReportadoELiberadoDeNovo() throws InterruptedException {
+        ProcessorCircuitBreaker cb = breaker(1, 50);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        Thread.sleep(60);
+        assertTrue(cb.tryAcquire(DEFAULT));
+        assertFalse(cb.tryAcquire(DEFAULT));
+
+        Thread.sleep(60);
+        assertTrue(cb.tryAcquire(DEFAULT));
+    }
+
+    @Test
+    void healthCheckSaudavelAntecipaOTeste() {
+        ProcessorCircuitBreaker cb = breaker(1, 60_000);
+        cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+
+        cb.onHealth(DEFAULT, new HealthStatus(false, 0));
+        assertFalse(cb.tryAcquire(DEFAULT));
+
+        cb.onHealth(DEFAULT, new HealthStatus(true, 0));
+        assertTrue(cb.tryAcquire(DEFAULT));
+        assertFalse(cb.tryAcquire(DEFAULT));
+    }
+
+    @Test
+    void limiteZeroDesligaOCircuito() {
+        ProcessorCircuitBreaker cb = breaker(0, 60_000);
+        for (int i = 0; i < 100; i++) {
+            cb.onResult(DEFAULT, Outcome.FAILURE, MS);
+        }
+        assertTrue(cb.tryAcquire(DEFAULT));
+    }
+
+    @Test
+    void timeoutAdaptativoSegueOP99EVoltaAoMaximo() throws InterruptedException {
+        ProcessorCircuitBreaker cb = breaker(5, 1000);
+        assertEquals(250, cb.timeoutMs(DEFAULT));
+
+        // Janela com amostras suficientes (>= 50) de ~20ms: timeout = 2 x p99
+        for (int i = 0; i < 60; i++) {
+            cb.onResult(DEFAULT, Outcome.SUCCESS, 20 * MS);
+        }
+        Thread.sleep(1050);
+        cb.onResult(DEFAULT, Outcome.SUCCESS, 20 * MS);
+        int adapted = cb.timeoutMs(DEFAULT);
+        assertTrue(adapted >= 40 && adapted <= 52, "timeout=" + adapted);
+
+        // Piso: 2 x minResponseTime do health check
+        cb.onHealth(DEFAULT, new HealthStatus(true, 60));
+        assertEquals(120, cb.timeoutMs(DEFAULT));
+        cb.onHealth(DEFAULT, new HealthStatus(true, 0));
+
+        // Janela com poucas amostras: volta metade da distância até o máximo
+        Thread.sleep(1050);
+        cb.onResult(DEFAULT, Outcome.SUCCESS, 20 * MS);
+        assertEquals(adapted + (250 - adapted + 1) / 2, cb.timeoutMs(DEFAULT));
+
+        // Mais de 1s sem fechar janela: máximo
+        Thread.sleep(2100);
+        assertEquals(250, cb.timeoutMs(DEFAULT));
+    }
+
+    @Test
+    void semAdaptativoUsaSempreOMaximo() {
+        ProcessorCircuitBreaker cb = new ProcessorCircuitBreaker(new SimpleMeterRegistry(), 5, 1000, false, 250, 10);
+        for (int i = 0; i < 100; i++) {
+            cb.onResult(DEFAULT, Outcome.SUCCESS, MS);
+        }
+        assertEquals(250, cb.timeoutMs(DEFAULT));
+    }
+}
@@ -0,0 +1,29 @@
+package scaputo88.com.example.rinha_25.service;
+
+import org.junit.jupiter.api.Test;
+import scaputo88.com.example.rinha_25.service.ProcessorClient.Outcome;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/** Como a causa de uma falha no POST /payments vira {@link Outcome}. */
+class RestTemplateProcessorClientTest {
+
+    @Test
+    void timeoutDeLeituraPodeTerSidoAceito() {
+        assertEquals(Outcome.TIMEOUT, RestTemplateProcessorClient.outcomeOf(new SocketTimeoutException("Read timed out")));
+        assertEquals(Outcome.TIMEOUT, RestTemplateProcessorClient.outcomeOf(new SocketTimeoutException()));
+    }
+
+    @Test
+    void falhaAoConectarNaoEnviouNada() {
+        assertEquals(Outcome.FAILURE, RestTemplateProcessorClient.outcomeOf(new SocketTimeoutException("Connect timed out")));
+        assertEquals(Outcome.FAILURE, RestTemplateProcessorClient.outcomeOf(new ConnectException("Connection refused")));
+        assertEquals(Outcome.FAILURE, RestTemplateProcessorClient.outcomeOf(new UnknownHostException("payment-processor-default")));
+        assertEquals(Outcome.FAILURE, RestTemplateProcessorClient.outcomeOf(new IOException("Broken pipe")));
+    }
+}
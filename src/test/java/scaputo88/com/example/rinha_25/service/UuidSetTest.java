@@ -0,0 +1,119 @@
+package scaputo88.com.example.rinha_25.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UuidSetTest {
+
+    // Semente fixa: a distribuição entre as faixas é sempre a mesma
+    private final Random random = new Random(42);
+
+    private UUID nextId() {
+        return new UUID(random.nextLong(), random.nextLong());
+    }
+
+    @Test
+    void addRejeitaRepetidoERemoveLibera() {
+        UuidSet set = new UuidSet(1024);
+        UUID id = nextId();
+
+        assertTrue(set.add(id));
+        assertFalse(set.add(id));
+        assertTrue(set.contains(id));
+        assertTrue(set.remove(id));
+        assertFalse(set.remove(id));
+        assertFalse(set.contains(id));
+        assertTrue(set.add(id));
+    }
+
+    @Test
+    void uuidNuloFicaAParte() {
+        UuidSet set = new UuidSet(1024);
+        UUID zero = new UUID(0, 0);
+
+        assertTrue(set.add(zero));
+        assertFalse(set.add(zero));
+        assertTrue(set.contains(zero));
+        assertTrue(set.remove(zero));
+        assertFalse(set.contains(zero));
+    }
+
+    @Test
+    void remocaoNoMeioDoClusterMantemOsDemaisAlcancaveis() {
+        UuidSet set = new UuidSet(4096);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            UUID id = new UUID(i, i * 31L);
+            ids.add(id);
+            assertTrue(set.add(id));
+        }
+        for (int i = 0; i < ids.size(); i += 2) {
+            assertTrue(set.remove(ids.get(i)));
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            assertEquals(i % 2 == 1, set.contains(ids.get(i)), "id " + i);
+        }
+    }
+
+    @Test
+    void naoCresceEEsqueceOsMaisAntigos() {
+        UuidSet set = new UuidSet(1024);
+        int capacity = set.capacity();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < capacity * 8; i++) {
+            UUID id = nextId();
+            ids.add(id);
+            assertTrue(set.add(id));
+        }
+
+        assertEquals(capacity, set.capacity());
+        // Cada faixa lembra pelo menos os últimos capacity / 32 dela; um quarto da capacidade cabe com folga
+        for (int i = ids.size() - capacity / 4; i < ids.size(); i++) {
+            assertTrue(set.contains(ids.get(i)), "id recente " + i);
+        }
+        // Os primeiros foram descartados junto com as gerações antigas
+        long remembered = ids.subList(0, capacity).stream().filter(set::contains).count();
+        assertEquals(0, remembered);
+    }
+
+    @Test
+    void removeAlcancaAGeracaoAnterior() {
+        UuidSet set = new UuidSet(1024);
+        UUID first = nextId();
+        set.add(first);
+        // Enche a geração atual de todas as faixas, empurrando o primeiro para a anterior
+        for (int i = 0; i < set.capacity() * 3 / 4; i++) {
+            set.add(nextId());
+        }
+
+        assertTrue(set.contains(first));
+        assertFalse(set.add(first));
+        assertTrue(set.remove(first));
+        assertFalse(set.contains(first));
+    }
+
+    @Test
+    void clearEsvaziaAsDuasGeracoes() {
+        UuidSet set = new UuidSet(1024);
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < set.capacity(); i++) {
+            UUID id = nextId();
+            ids.add(id);
+            set.add(id);
+        }
+        set.add(new UUID(0, 0));
+
+        set.clear();
+
+        assertFalse(set.contains(new UUID(0, 0)));
+        assertTrue(ids.stream().noneMatch(set::contains));
+    }
+}